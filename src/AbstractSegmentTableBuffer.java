@@ -0,0 +1,644 @@
+package src;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A character {@link SequenceBuffer} that keeps its subsequences in a table of records
+ * rather than as {@link SubSequence} objects. Record i holds the start index, the end index
+ * and the result id of subsequence i, or -1 as the id if it is unprocessed; results are
+ * interned in a {@link ResultTable}, so each distinct result is held once. The records are
+ * kept sorted by start index, so a subsequence is found by binary search, a split moves
+ * the tail of the table, and a batch is merged into a second table in a single pass.
+ * This class holds the algorithms over the table; concrete buffers decide where the
+ * records are stored, through the record accessors, and hold the original sequence.
+ * Methods that return a SubSequence build a detached copy of it: changing the copy does
+ * not change the buffer, and {@link #getSubSequenceIndex(SubSequence)} recognises a
+ * subsequence by its indices rather than by identity.
+ * Results are concatenated with a hyphen "-", as in {@link CharBuffer}.
+ */
+abstract class AbstractSegmentTableBuffer implements SequenceBuffer {
+
+    protected static final int INITIAL_RECORDS = 16; // Records a new table has room for
+
+    private final ResultTable results = new ResultTable(); // Distinct results, by id
+    private int count; // Number of records in use
+    private int unprocessedCount; // Number of subsequences without a result
+    private int firstUnprocessedHint; // No subsequence before this position is unprocessed
+
+    /**
+     * Retrieves the original sequence as characters, read in place.
+     *
+     * @return the original characters
+     */
+    abstract CharSequence getCharacters();
+
+    /**
+     * Reads the start index of the record at a position.
+     *
+     * @param position the position of the record
+     * @return the start index
+     */
+    protected abstract int startAt(int position);
+
+    /**
+     * Reads the end index of the record at a position.
+     *
+     * @param position the position of the record
+     * @return the end index
+     */
+    protected abstract int endAt(int position);
+
+    /**
+     * Reads the result id of the record at a position.
+     *
+     * @param position the position of the record
+     * @return the result id, or -1 if the subsequence is unprocessed
+     */
+    protected abstract int resultIdAt(int position);
+
+    /**
+     * Writes the record at a position.
+     *
+     * @param position the position of the record
+     * @param startIndex the start index
+     * @param endIndex the end index
+     * @param resultId the result id, or -1 for an unprocessed subsequence
+     */
+    protected abstract void setRecord(int position, int startIndex, int endIndex, int resultId);
+
+    /**
+     * Gets the number of records the table has room for.
+     *
+     * @return the capacity of the table
+     */
+    protected abstract int recordCapacity();
+
+    /**
+     * Grows the table to a capacity, keeping the records already written.
+     *
+     * @param capacity the number of records required
+     */
+    protected abstract void growRecords(int capacity);
+
+    /**
+     * Moves a run of records within the table. The ranges may overlap.
+     *
+     * @param from the position of the first record to move
+     * @param to the position it moves to
+     * @param length the number of records to move
+     */
+    protected abstract void moveRecords(int from, int to, int length);
+
+    /**
+     * Prepares a second table for a merge, with room for a number of records.
+     *
+     * @param capacity the largest number of records the merge can write
+     */
+    protected abstract void beginMerge(int capacity);
+
+    /**
+     * Writes a record of the table being merged.
+     *
+     * @param position the position of the record
+     * @param startIndex the start index
+     * @param endIndex the end index
+     * @param resultId the result id, or -1 for an unprocessed subsequence
+     */
+    protected abstract void setMergedRecord(int position, int startIndex, int endIndex, int resultId);
+
+    /**
+     * Replaces the table with the one just merged.
+     */
+    protected abstract void finishMerge();
+
+    /**
+     * Writes the record of the initial unprocessed subsequence, spanning the whole
+     * sequence. Called by concrete buffers once their table can hold a record.
+     *
+     * @param length the length of the original sequence
+     */
+    protected void initializeRecords(int length) {
+        setRecord(0, 0, length - 1, -1);
+        this.count = 1;
+        this.unprocessedCount = 1;
+    }
+
+    /**
+     * Checks if the record at a position has a result.
+     *
+     * @param position the position of the record
+     * @return true if the subsequence is processed
+     */
+    protected boolean isProcessedAt(int position) {
+        return resultIdAt(position) >= 0;
+    }
+
+    /**
+     * Gets the result of the record at a position.
+     *
+     * @param position the position of the record
+     * @return the result, or an empty string if the subsequence is unprocessed
+     */
+    protected String resultAt(int position) {
+        int resultId = resultIdAt(position);
+        return resultId < 0 ? "" : this.results.get(resultId);
+    }
+
+    /**
+     * Adds a subsequence by its indices and result. The range may fall inside one
+     * unprocessed subsequence or span several; a range that overlaps a processed
+     * subsequence, or runs past the sequence, is ignored.
+     *
+     * @param startIndex the starting index of the new subsequence
+     * @param endIndex the ending index of the new subsequence
+     * @param result the result associated with this subsequence
+     */
+    public void addSubSequence(int startIndex, int endIndex, String result) {
+        SubSequence.validate(startIndex, endIndex, result);
+        int first = positionOf(startIndex);
+        if (first < 0 || isProcessedAt(first)) {
+            return;
+        }
+        int last = first;
+        while (endAt(last) < endIndex) {
+            last++;
+            if (last == this.count || isProcessedAt(last)) {
+                return;
+            }
+        }
+
+        int segmentStart = startAt(first);
+        int segmentEnd = endAt(last);
+        int leading = startIndex - segmentStart; // Unprocessed characters kept before the range
+        int trailing = segmentEnd - endIndex; // Unprocessed characters kept after the range
+        int pieces = 1 + (leading > 0 ? 1 : 0) + (trailing > 0 ? 1 : 0);
+        splice(first, last - first + 1, pieces);
+
+        int position = first;
+        if (leading > 0) {
+            setRecord(position++, segmentStart, startIndex - 1, -1);
+        }
+        int resultId = storeResult(result);
+        setRecord(position++, startIndex, endIndex, resultId);
+        if (trailing > 0) {
+            setRecord(position, endIndex + 1, segmentEnd, -1);
+        }
+        this.unprocessedCount += pieces - (resultId < 0 ? 0 : 1);
+    }
+
+    /**
+     * Adds the specified subsequence by its indices and result.
+     *
+     * @param subSequence the subsequence to add. It must not be null.
+     */
+    public void addSubSequence(SubSequence subSequence) {
+        if (subSequence == null) {
+            throw new IllegalArgumentException(
+                "The sub-sequence must not be null."
+            );
+        }
+        addSubSequence(subSequence.getStartIndex(), subSequence.getEndIndex(), subSequence.getResult());
+    }
+
+    /**
+     * Adds a batch of subsequences.
+     * See {@link #addSubSequences(int[], int[], String[])} for how the batch is merged.
+     *
+     * @param batch the subsequences to add
+     */
+    public void addSubSequences(Collection<SubSequence> batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("The batch of sub-sequences must not be null.");
+        }
+        int[] startIndices = new int[batch.size()];
+        int[] endIndices = new int[batch.size()];
+        String[] batchResults = new String[batch.size()];
+        int i = 0;
+        for (SubSequence subSequence : batch) {
+            if (subSequence == null) {
+                throw new IllegalArgumentException(
+                    "The sub-sequence must not be null."
+                );
+            }
+            startIndices[i] = subSequence.getStartIndex();
+            endIndices[i] = subSequence.getEndIndex();
+            batchResults[i++] = subSequence.getResult();
+        }
+        addSubSequences(startIndices, endIndices, batchResults);
+    }
+
+    /**
+     * Adds a batch of subsequences given as parallel arrays. The whole batch is validated
+     * before the buffer is modified, then sorted by start index and merged with the existing
+     * subsequences into a second table in a single pass, so a batch of m ranges costs
+     * O(m log m + n) rather than a move per range. Ranges are ignored as described by
+     * {@link SequenceBuffer#addSubSequences(Collection)}.
+     *
+     * @param startIndices the starting index of each subsequence
+     * @param endIndices the ending index of each subsequence
+     * @param batchResults the result associated with each subsequence
+     */
+    public void addSubSequences(int[] startIndices, int[] endIndices, String[] batchResults) {
+        if (startIndices == null || endIndices == null || batchResults == null) {
+            throw new IllegalArgumentException("The batch arrays must not be null.");
+        }
+        if (startIndices.length != endIndices.length || startIndices.length != batchResults.length) {
+            throw new IllegalArgumentException("The batch arrays must have the same length.");
+        }
+        int m = startIndices.length;
+        for (int i = 0; i < m; i++) {
+            SubSequence.validate(startIndices[i], endIndices[i], batchResults[i]);
+        }
+        int[] order = sortedOrder(startIndices, endIndices);
+
+        beginMerge(this.count + 2 * m);
+        int out = 0;
+        int unprocessed = 0;
+        int b = 0;
+        int i = 0;
+        while (i < this.count) {
+            while (b < m && startIndices[order[b]] < startAt(i)) {
+                b++; // Started in a subsequence that could not take it
+            }
+            if (isProcessedAt(i) || b == m || startIndices[order[b]] > endAt(i)) {
+                setMergedRecord(out++, startAt(i), endAt(i), resultIdAt(i));
+                unprocessed += isProcessedAt(i++) ? 0 : 1;
+                continue;
+            }
+            int last = i; // Last unprocessed subsequence absorbed into the run
+            int next = startAt(i); // First index not yet covered by a piece
+            while (b < m && startIndices[order[b]] <= endAt(last)) {
+                int position = order[b++];
+                int startIndex = startIndices[position];
+                int endIndex = endIndices[position];
+                if (startIndex < next) {
+                    continue; // Overlaps an earlier range
+                }
+                if (endIndex > endAt(last)) {
+                    int reach = last + 1;
+                    while (reach < this.count && !isProcessedAt(reach) && endAt(reach) < endIndex) {
+                        reach++;
+                    }
+                    if (reach == this.count || isProcessedAt(reach)) {
+                        continue; // Runs over a processed subsequence or past the sequence
+                    }
+                    last = reach;
+                }
+                if (startIndex > next) {
+                    setMergedRecord(out++, next, startIndex - 1, -1);
+                    unprocessed++;
+                }
+                int resultId = storeResult(batchResults[position]);
+                setMergedRecord(out++, startIndex, endIndex, resultId);
+                unprocessed += resultId < 0 ? 1 : 0;
+                next = endIndex + 1;
+            }
+            if (next <= endAt(last)) {
+                setMergedRecord(out++, next, endAt(last), -1);
+                unprocessed++;
+            }
+            i = last + 1;
+        }
+
+        finishMerge();
+        this.count = out;
+        this.unprocessedCount = unprocessed;
+        this.firstUnprocessedHint = 0;
+    }
+
+    /**
+     * Orders the positions of a batch by start index, then end index, then position,
+     * with two sorts of primitive keys that each pack an index above a position.
+     * The first sort ranks the ends; the second sorts the starts with the end ranks as
+     * tie-breaks, and a rank leads back to its position.
+     *
+     * @param startIndices the starting index of each subsequence, none of them negative
+     * @param endIndices the ending index of each subsequence, none of them negative
+     * @return the positions of the batch in sorted order
+     */
+    private static int[] sortedOrder(int[] startIndices, int[] endIndices) {
+        int m = startIndices.length;
+        long[] keys = new long[m];
+        for (int i = 0; i < m; i++) {
+            keys[i] = (long) endIndices[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+        int[] positionOfRank = new int[m];
+        for (int rank = 0; rank < m; rank++) {
+            positionOfRank[rank] = (int) keys[rank];
+        }
+        for (int rank = 0; rank < m; rank++) {
+            int position = positionOfRank[rank];
+            keys[rank] = (long) startIndices[position] << 32 | rank;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = positionOfRank[(int) keys[i]];
+        }
+        return order;
+    }
+
+    /**
+     * Builds a copy of the subsequence at the given position.
+     *
+     * @param index the position of the subsequence, from 0
+     * @return a detached copy of the subsequence, with its ID set to index + 1
+     */
+    public SubSequence getSubSequenceByIndex(int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException(
+                String.format("Index %d is out of bounds [0, %d]",
+                index, this.count - 1)
+            );
+        }
+        return materialize(index);
+    }
+
+    /**
+     * Finds the position of the subsequence with the same indices as the given one.
+     *
+     * @param subSequence the subsequence to find
+     * @return its position, or -1 if the buffer holds no subsequence with those indices
+     */
+    public int getSubSequenceIndex(SubSequence subSequence) {
+        if (subSequence == null) {
+            return -1;
+        }
+        int position = positionOf(subSequence.getStartIndex());
+        if (position < 0 || startAt(position) != subSequence.getStartIndex()
+            || endAt(position) != subSequence.getEndIndex()) {
+            return -1;
+        }
+        return position;
+    }
+
+    /**
+     * Builds a copy of the first unprocessed subsequence. Subsequences before
+     * the last one found are never visited again, since processed subsequences
+     * never change.
+     *
+     * @return the first unprocessed subsequence, or null if all are processed
+     */
+    public SubSequence getFirstUnprocessedSubSequence() {
+        int position = firstUnprocessedPosition();
+        return position < 0 ? null : materialize(position);
+    }
+
+    /**
+     * Checks if every subsequence has a result.
+     *
+     * @return true if all subsequences are processed
+     */
+    public boolean isProcessed() {
+        return this.unprocessedCount == 0;
+    }
+
+    /**
+     * Gets the number of subsequences without a result.
+     *
+     * @return the number of unprocessed subsequences
+     */
+    public int getUnprocessedSubsequenceSize() {
+        return this.unprocessedCount;
+    }
+
+    /**
+     * Returns an iterator over copies of the unprocessed subsequences, in order of start index.
+     * The iterator is not valid once the buffer has been changed.
+     *
+     * @return an iterator over the unprocessed subsequences
+     */
+    public Iterator<SubSequence> unprocessedIterator() {
+        return new Iterator<SubSequence>() {
+            private int position = advance(firstUnprocessedPosition() < 0 ? count : firstUnprocessedHint);
+
+            private int advance(int from) {
+                while (from < count && isProcessedAt(from)) {
+                    from++;
+                }
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return this.position < count;
+            }
+
+            @Override
+            public SubSequence next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                SubSequence subSequence = materialize(this.position);
+                this.position = advance(this.position + 1);
+                return subSequence;
+            }
+        };
+    }
+
+    /**
+     * Returns the original sequence as an array of strings, one per character.
+     *
+     * @return the characters as strings
+     */
+    public String[] getOriginalSequence() {
+        CharSequence characters = getCharacters();
+        String[] stringArray = new String[characters.length()];
+        for (int i = 0; i < stringArray.length; i++) {
+            stringArray[i] = String.valueOf(characters.charAt(i));
+        }
+        return stringArray;
+    }
+
+    /**
+     * Copies the characters covered by a subsequence.
+     *
+     * @param subSeq the subsequence whose characters are extracted
+     * @return the characters between its start and end indices
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSeq) {
+        if (subSeq == null) {
+            throw new IllegalArgumentException("SubSequence cannot be null.");
+        }
+        CharSequence characters = getCharacters();
+        if (subSeq.getStartIndex() < 0 || subSeq.getEndIndex() >= characters.length()) {
+            throw new IndexOutOfBoundsException("SubSequence indices are out of bounds.");
+        }
+        if (subSeq.getStartIndex() > subSeq.getEndIndex()) {
+            throw new IllegalArgumentException("Start index cannot be greater than end index.");
+        }
+        return characters.subSequence(subSeq.getStartIndex(), subSeq.getEndIndex() + 1).toString();
+    }
+
+    /**
+     * Searches the unprocessed subsequences for a pattern in place, starting with the
+     * one containing or following the index, which is found by binary search.
+     *
+     * @param pattern the pattern to find
+     * @param searcher the search algorithm to use
+     * @param fromIndex the index of the original sequence to search from
+     * @return the index of the match in the original sequence, or -1 if there is none
+     */
+    public int searchUnprocessed(String pattern, SubStringSearch searcher, int fromIndex) {
+        if (pattern == null || pattern.isEmpty() || searcher == null) {
+            throw new IllegalArgumentException("Pattern must not be empty and searcher must not be null.");
+        }
+        CharSequence characters = getCharacters();
+        int position = Math.max(0, fromIndex);
+        if (position >= characters.length()) {
+            return -1;
+        }
+        for (int i = positionOf(position); i < this.count; i++) {
+            if (isProcessedAt(i)) {
+                continue;
+            }
+            int from = Math.max(startAt(i), position);
+            int to = endAt(i) + 1;
+            if (to - from >= pattern.length()) {
+                int match = searcher.search(pattern, characters, from, to);
+                if (match < to) {
+                    return match;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Concatenates the results of the subsequences, separated by hyphens,
+     * with "*" for each unprocessed subsequence.
+     *
+     * @return the concatenated results
+     */
+    public String resultToString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        try {
+            writeResultTo(stringBuilder);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Writes the results of the subsequences to the destination, as {@link #resultToString()} would,
+     * so the results of a very large buffer can be streamed rather than assembled at once.
+     *
+     * @param destination the destination the results are appended to
+     * @throws IOException if the destination cannot be written to
+     */
+    public void writeResultTo(Appendable destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("The destination must not be null.");
+        }
+        for (int i = 0; i < this.count; i++) {
+            if (i > 0) {
+                destination.append('-');
+            }
+            destination.append(isProcessedAt(i) ? resultAt(i) : "*");
+        }
+    }
+
+    /**
+     * Gets the number of subsequences.
+     *
+     * @return the number of subsequences
+     */
+    public int getSubsequenceSize() {
+        return this.count;
+    }
+
+    /**
+     * Prints the details of each subsequence, including IDs, indices, substrings,
+     * and processing status.
+     */
+    public void printSubSequences() {
+        System.out.println("_Subsequences_");
+        CharSequence characters = getCharacters();
+        for (int i = 0; i < this.count; i++) {
+            String output = String.format("ID: %s,Indx: [%d:%d],Str: '%s',Proc: %s,Result: '%s'",
+                                          i + 1, startAt(i), endAt(i),
+                                          characters.subSequence(startAt(i), endAt(i) + 1),
+                                          isProcessedAt(i), resultAt(i));
+            System.out.println(output);
+        }
+    }
+
+    /**
+     * Finds the position of the subsequence containing an index of the sequence,
+     * by binary search over the start indices in the table.
+     *
+     * @param index the index within the original sequence
+     * @return the position, or -1 if the index is past the sequence
+     */
+    protected int positionOf(int index) {
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (startAt(mid) <= index) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && endAt(high) >= index ? high : -1;
+    }
+
+    /**
+     * Finds the position of the first unprocessed subsequence, moving the hint past
+     * the processed subsequences in front of it.
+     *
+     * @return the position, or -1 if all subsequences are processed
+     */
+    private int firstUnprocessedPosition() {
+        if (this.unprocessedCount == 0) {
+            return -1;
+        }
+        while (isProcessedAt(this.firstUnprocessedHint)) {
+            this.firstUnprocessedHint++;
+        }
+        return this.firstUnprocessedHint;
+    }
+
+    /**
+     * Replaces {@code removed} records from a position with room for {@code inserted}
+     * new ones, moving the rest of the table. The subsequences removed are all unprocessed,
+     * so the unprocessed count is reduced by their number; the new records must be set.
+     */
+    private void splice(int position, int removed, int inserted) {
+        int newCount = this.count - removed + inserted;
+        if (newCount > recordCapacity()) {
+            growRecords(Math.max(newCount, 2 * recordCapacity()));
+        }
+        int tail = this.count - position - removed;
+        if (removed != inserted && tail > 0) {
+            moveRecords(position + removed, position + inserted, tail);
+        }
+        this.count = newCount;
+        this.unprocessedCount -= removed;
+    }
+
+    /**
+     * Interns a result in the result table. An empty result is not stored.
+     *
+     * @return the id of the result, or -1 if the result is empty
+     */
+    private int storeResult(String result) {
+        return result.isEmpty() ? -1 : this.results.intern(result);
+    }
+
+    /**
+     * Builds a detached SubSequence for the record at a position.
+     */
+    private SubSequence materialize(int position) {
+        SubSequence subSequence = new SubSequence(startAt(position), endAt(position), resultAt(position));
+        subSequence.ID = position + 1;
+        return subSequence;
+    }
+}
@@ -0,0 +1,1109 @@
+package src;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Abstract implementation of the SequenceBuffer, providing common functionality
+ * that can be used by all concrete buffer implementations. This class initializes
+ * the sequence storage and implements basic operations defined in the SequenceBuffer interface.
+ * 
+ * @param <T> the type of elements held in the buffer 
+ */
+abstract class AbstractSequenceBuffer<T> implements SequenceBuffer {
+
+    private static final int RESULT_CHUNK_SIZE = 64; // Subsequences per chunk of results, split at twice this
+
+    protected TreeMap<Integer, SubSequence> subSequences; // Subsequences indexed by start index.
+    protected LinkedList<Integer> subSequenceID; // List of identifiers for each subsequence.
+    private boolean subSequenceIDsStale; // Set when a change leaves IDs out of order.
+    // Unprocessed subsequences only, indexed by start index and kept in step with subSequences.
+    private TreeMap<Integer, SubSequence> unprocessedSubSequences = new TreeMap<>();
+    private SubSequence firstUnprocessed; // Cached head of unprocessedSubSequences.
+    // Assembled results of runs of consecutive subsequences, keyed by the first index key
+    // each run covers; null until the results are first read.
+    private TreeMap<Integer, ResultChunk> resultChunks;
+    private ResultRope assembledResult; // Last value of resultSequence, cleared by any change.
+    // Number of buffers holding the index maps, or null while this buffer alone holds them.
+    private AtomicInteger indexHolders;
+    // Stamped on the subsequences this buffer created since it last forked; only those are changed in place.
+    private Object generation = new Object();
+    private SubSequence[] positions = new SubSequence[0]; // Subsequences by position, rebuilt with the IDs.
+    // Distinct results, shared by every subsequence of this buffer with an equal result.
+    private ResultTable results; // Created by the first result interned
+
+    /**
+     * Forks the buffer in constant time. The fork shares the original sequence, the
+     * subsequences and, until one side changes, the index of subsequences.
+     * The index is a pair of ordinary sorted maps rather than a persistent structure, so
+     * the first change made by a buffer that still shares them copies both maps, in O(n).
+     * Buffers count the holders of the maps, so once every other holder has copied them,
+     * the last holder changes them in place: a fork that is kept and a buffer that is
+     * changed costs one copy between them, not one each. A fork that is discarded without
+     * being changed is never counted out, so its parent still copies once.
+     * Subsequences are never changed once shared; each side copies a subsequence only
+     * when it splits it or gives it a result. Each buffer interns its new results in a
+     * table of its own, so forks can be changed on separate threads; results interned
+     * before the fork stay shared through the subsequences that carry them.
+     * A fork can be discarded, or its state taken back with
+     * {@link #promote(AbstractSequenceBuffer)}.
+     *
+     * @return a buffer with the same subsequences as this one
+     */
+    public AbstractSequenceBuffer<T> fork() {
+        AbstractSequenceBuffer<T> branch = createBranch();
+        branch.shareStateOf(this);
+        return branch;
+    }
+
+    /**
+     * Replaces the subsequences of this buffer with those of a fork,
+     * in constant time. The fork must share this buffer's original sequence.
+     *
+     * @param branch a buffer forked from this buffer, or from one of its forks
+     */
+    public void promote(AbstractSequenceBuffer<T> branch) {
+        if (branch == null || branch.getOriginalStorage() != this.getOriginalStorage()) {
+            throw new IllegalArgumentException(
+                "Only a fork sharing this buffer's original sequence can be promoted."
+            );
+        }
+        if (branch != this) {
+            shareStateOf(branch);
+        }
+    }
+
+    /**
+     * Creates a buffer over the same original sequence as this one, with no subsequences,
+     * for {@link #fork()}. Buffers that cannot share their original sequence do not support forking.
+     *
+     * @return an empty buffer sharing this buffer's original sequence
+     */
+    protected AbstractSequenceBuffer<T> createBranch() {
+        throw new UnsupportedOperationException(
+            getClass().getSimpleName() + " does not support forking."
+        );
+    }
+
+    /**
+     * Retrieves the storage of the original sequence, which identifies the buffers 
+     * that are forks of one another.
+     *
+     * @return the object holding the original sequence
+     */
+    protected Object getOriginalStorage() {
+        return this;
+    }
+
+    /**
+     * Makes this buffer share the index and subsequences of another buffer. The index
+     * maps gain a holder, and both buffers start a new generation, so neither changes
+     * the subsequences they now share.
+     */
+    private void shareStateOf(AbstractSequenceBuffer<T> source) {
+        releaseIndex();
+        if (source.indexHolders == null) {
+            source.indexHolders = new AtomicInteger(1);
+        }
+        source.indexHolders.incrementAndGet();
+        this.indexHolders = source.indexHolders;
+        this.subSequences = source.subSequences;
+        this.unprocessedSubSequences = source.unprocessedSubSequences;
+        this.firstUnprocessed = source.firstUnprocessed;
+        this.assembledResult = source.assembledResult;
+        this.resultChunks = null;
+        this.subSequenceIDsStale = true;
+        this.generation = new Object();
+        source.generation = new Object();
+    }
+
+    /**
+     * Gives up this buffer's hold on index maps it shares, before it replaces them.
+     */
+    private void releaseIndex() {
+        if (this.indexHolders != null) {
+            this.indexHolders.decrementAndGet();
+            this.indexHolders = null;
+        }
+    }
+
+    /**
+     * Copies the index maps before they are changed, unless this buffer is the last
+     * to hold them. Copying a sorted map into a new TreeMap takes linear time.
+     * The maps are copied before the holder count drops, so a buffer that finds
+     * itself the last holder never changes maps another is still copying.
+     */
+    private void ensureOwnIndex() {
+        if (this.indexHolders != null) {
+            if (this.indexHolders.get() > 1) {
+                this.subSequences = new TreeMap<>(this.subSequences);
+                this.unprocessedSubSequences = new TreeMap<>(this.unprocessedSubSequences);
+            }
+            releaseIndex();
+        }
+    }
+
+    /**
+     * Returns a subsequence that can safely be changed in place. A subsequence created
+     * before the buffer last forked may be shared, so it is replaced in the index by a copy.
+     *
+     * @param subSequence an indexed subsequence about to be changed
+     * @return the subsequence, or its copy if it may be shared
+     */
+    private SubSequence ownSubSequence(SubSequence subSequence) {
+        if (subSequence.owner == this.generation) {
+            return subSequence;
+        }
+        SubSequence copy = new SubSequence(
+            subSequence.getStartIndex(), subSequence.getEndIndex(), subSequence.getResult()
+        );
+        unindexSubSequence(subSequence);
+        indexSubSequence(copy);
+        return copy;
+    }
+
+    /**
+     * Checks if all subsequences within the buffer have been processed.
+     * The buffer tracks its unprocessed subsequences as they change, 
+     * so this is a constant time check.
+     *
+     * @return true if all subsequences are processed, otherwise false
+     */
+    public boolean isProcessed() {
+        return this.unprocessedSubSequences.isEmpty();
+    }
+
+    /**
+     * Retrieves the number of subsequences in the buffer that have not been processed.
+     *
+     * @return the number of unprocessed subsequences
+     */
+    public int getUnprocessedSubsequenceSize() {
+        return this.unprocessedSubSequences.size();
+    }
+
+    /**
+     * Returns an iterator over the unprocessed subsequences only, in order of start index.
+     * The iterator is fail-fast: adding subsequences while iterating invalidates it.
+     *
+     * @return an iterator over the unprocessed subsequences
+     */
+    public Iterator<SubSequence> unprocessedIterator() {
+        return Collections.unmodifiableCollection(this.unprocessedSubSequences.values()).iterator();
+    }
+
+    /**
+     * Searches the unprocessed subsequences for a pattern, starting with the one
+     * containing or following the index. Only the index of unprocessed subsequences 
+     * is walked, and each one is searched in place within the original sequence.
+     *
+     * @param pattern the pattern to find
+     * @param searcher the search algorithm to use
+     * @param fromIndex the index of the original sequence to search from
+     * @return the index of the match in the original sequence, or -1 if there is none
+     */
+    public int searchUnprocessed(String pattern, SubStringSearch searcher, int fromIndex) {
+        if (pattern == null || pattern.isEmpty() || searcher == null) {
+            throw new IllegalArgumentException("Pattern must not be empty and searcher must not be null.");
+        }
+        CharSequence text = getSearchableCharacters();
+        Integer first = this.unprocessedSubSequences.floorKey(fromIndex);
+        for (SubSequence subSequence : (first == null 
+                ? this.unprocessedSubSequences 
+                : this.unprocessedSubSequences.tailMap(first, true)).values()) {
+            int from = Math.max(subSequence.getStartIndex(), fromIndex);
+            int to = subSequence.getEndIndex() + 1;
+            if (to - from >= pattern.length()) {
+                int match = searcher.search(pattern, text, from, to);
+                if (match < to) {
+                    return match;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the original sequence as characters for searching, one character
+     * per index of the sequence. Only indices within unprocessed subsequences are read.
+     * Buffers whose elements are not single characters cannot be searched.
+     *
+     * @return the original sequence as a character sequence
+     */
+    protected CharSequence getSearchableCharacters() {
+        throw new UnsupportedOperationException(
+            getClass().getSimpleName() + " does not hold one character per element and cannot be searched."
+        );
+    }
+
+    /**
+     * Retrieves the number of subsequences currently stored in the buffer.
+     *
+     * @return the number of subsequences in the buffer
+     */
+    public int getSubsequenceSize() {
+        return this.subSequences.size();
+    }
+
+    /**
+     * Retrieves a SubSequence by its index in the list.
+     * @param index The index of the SubSequence to retrieve.
+     * @return The SubSequence at the specified index.
+     */
+    public SubSequence getSubSequenceByIndex(int index) {
+        if (index < 0 || index >= subSequences.size()) {
+            throw new IndexOutOfBoundsException(
+                String.format("Index %d is out of bounds [0, %d]",
+                index, subSequences.size() - 1)
+            );
+        }
+        refreshSubSequenceIDs();
+        return this.positions[index];
+    }
+ 
+    /**
+     * Returns the index of the specified sub-sequence within the list of sub-sequences.
+     * The sub-sequence is located through the start index, so only the instance held
+     * by this buffer is recognised, and its position is found by binary search.
+     *
+     * @param subSequence The sub-sequence to find. It must not be null.
+     * @return The index of the sub-sequence if it is found in the list; otherwise, -1.
+     */    
+    public int getSubSequenceIndex(SubSequence subSequence) {
+        if (subSequence == null 
+            || subSequences.get(subSequence.getStartIndex()) != subSequence) {
+            return -1;
+        }
+        refreshSubSequenceIDs();
+        int low = 0;
+        int high = this.positions.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int startIndex = this.positions[middle].getStartIndex();
+            if (startIndex < subSequence.getStartIndex()) {
+                low = middle + 1;
+            } else if (startIndex > subSequence.getStartIndex()) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1; // Unreachable, the subsequence is indexed
+    }
+
+    /**
+     * Retrieves the first subsequence from the buffer that has not been processed yet.
+     * The head of the unprocessed subsequences is cached as they change, 
+     * so no subsequences are visited. Results must be assigned through the buffer
+     * (rather than {@link SubSequence#setResult}) for the tracking to see them.
+     *
+     * @return the first unprocessed SubSequence if any; otherwise,
+     *         null if all subsequences
+     *         are processed or the list is empty
+     */
+    public SubSequence getFirstUnprocessedSubSequence() {
+        return this.firstUnprocessed;
+    }
+
+    /**
+     * Returns the original sequence as an array of strings. Each element of the
+     * original sequence is converted into a string by {@link #getOriginalElement(int)}.
+     *
+     * @return an array of strings representing the original sequence
+     */
+    public String[] getOriginalSequence() {
+        int length = getOriginalSequenceLength();
+        if (length == 0) {
+            // Return an empty String array if the original sequence is empty
+            return new String[0];
+        }
+
+        String[] stringArray = new String[length];
+        for (int i = 0; i < length; i++) {
+            stringArray[i] = getOriginalElement(i);
+        }
+
+        return stringArray;
+    }
+
+    /**
+     * Retrieves the number of elements in the original sequence.
+     * Each concrete buffer keeps the original sequence in its own storage.
+     *
+     * @return the length of the original sequence
+     */
+    protected abstract int getOriginalSequenceLength();
+
+    /**
+     * Converts a single element of the original sequence into a string.
+     *
+     * @param index the index of the element within the original sequence
+     * @return the element as a string
+     */
+    protected abstract String getOriginalElement(int index);
+
+    /**
+     * Adds the specified sub-sequence to the current sequence buffer
+     * by extracting its start index,
+     * end index, and result value.
+     *
+     * @param subSequence The sub-sequence to be added. It must not be null.
+     */    
+    public void addSubSequence(SubSequence subSequence) {
+        if (subSequence == null) {
+            throw new IllegalArgumentException(
+                "The sub-sequence must not be null."
+            );
+        }
+        int startIndex = subSequence.getStartIndex();
+        int endIndex = subSequence.getEndIndex();
+        String result = subSequence.getResult();
+        this.addSubSequence(startIndex, endIndex, result);
+    }
+
+    /**
+     * Adds a new subsequence to the sequence buffer, only if certain conditions are met.
+     * The method first validates the indices and the result string, throwing an exception
+     * for invalid arguments. It then checks if the new subsequence is unprocessed and
+     * if there are no existing subsequences in the buffer. If these conditions are met,
+     * the subsequence is added; otherwise, the subsequence is processed further.
+     *
+     * @param startIndex the starting index of the new subsequence
+     * @param endIndex the ending index of the new subsequence
+     * @param result the result or data associated with this subsequence
+     */
+    public void addSubSequence(int startIndex, int endIndex, String result) {
+        SubSequence.validate(startIndex, endIndex, result);
+
+        SubSequence subSequence = new SubSequence(startIndex, endIndex, canonicalResult(result));
+        placeSubSequence(subSequence, true);
+    }
+
+    /**
+     * Places a validated subsequence, seeding an empty buffer or merging it
+     * against the existing subsequences.
+     *
+     * @param subSequence the subsequence to place, owned by the buffer from now on
+     * @param observed true to report the add to {@link SequenceBufferMetrics} as a single add
+     */
+    private void placeSubSequence(SubSequence subSequence, boolean observed) {
+        // Ensure this code is only executed if processed is false
+        // and the size of subSequences is 0
+        if (!subSequence.isProcessed() && this.subSequences.isEmpty()) {
+            indexSubSequence(subSequence);
+            subSequence.ID = 1;
+        } else {
+            processNewSubSequence(subSequence, observed);
+        }
+    }
+
+    /**
+     * Adds a batch of subsequences in a single merge against the existing subsequences.
+     * The whole batch is validated before the buffer is modified, then sorted by start
+     * index and merged in one pass: each unprocessed subsequence that receives ranges 
+     * is carved into its new pieces once, and IDs are reassigned once for the batch.
+     * Ranges may span several unprocessed subsequences; ranges that overlap a processed
+     * subsequence, start past the sequence or overlap an earlier range of the batch are
+     * ignored, as described by {@link SequenceBuffer#addSubSequences(Collection)}.
+     *
+     * @param batch the subsequences to add
+     */
+    public void addSubSequences(Collection<SubSequence> batch) {
+        if (batch == null) {
+            throw new IllegalArgumentException("The batch of sub-sequences must not be null.");
+        }
+        List<SubSequence> sorted = new ArrayList<>(batch.size());
+        for (SubSequence subSequence : batch) {
+            if (subSequence == null) {
+                throw new IllegalArgumentException(
+                    "The sub-sequence must not be null."
+                );
+            }
+            SubSequence.validate(
+                subSequence.getStartIndex(), subSequence.getEndIndex(), subSequence.getResult()
+            );
+            // Copy so the buffer never adopts the caller's instances
+            sorted.add(new SubSequence(
+                subSequence.getStartIndex(), subSequence.getEndIndex(), canonicalResult(subSequence.getResult())
+            ));
+        }
+        SequenceBufferMetrics.SubSequenceBatchEvent event = SequenceBufferMetrics.beginBatch(sorted.size());
+        int sizeBefore = this.subSequences.size();
+        sorted.sort(Comparator.comparingInt(SubSequence::getStartIndex)
+            .thenComparingInt(SubSequence::getEndIndex));
+
+        if (this.subSequences.isEmpty()) {
+            // Nothing to merge against, the first range seeds the buffer.
+            // These adds belong to the batch, so they are not counted as single adds.
+            for (SubSequence subSequence : sorted) {
+                placeSubSequence(subSequence, false);
+            }
+        } else {
+            mergeSortedSubSequences(sorted);
+        }
+        SequenceBufferMetrics.endBatch(event, this.subSequences.size() - sizeBefore);
+    }
+
+    /**
+     * Adds a batch of subsequences given as parallel arrays.
+     * See {@link #addSubSequences(Collection)} for how the batch is merged.
+     *
+     * @param startIndices the starting index of each subsequence
+     * @param endIndices the ending index of each subsequence
+     * @param results the result associated with each subsequence
+     */
+    public void addSubSequences(int[] startIndices, int[] endIndices, String[] results) {
+        if (startIndices == null || endIndices == null || results == null) {
+            throw new IllegalArgumentException("The batch arrays must not be null.");
+        }
+        if (startIndices.length != endIndices.length || startIndices.length != results.length) {
+            throw new IllegalArgumentException("The batch arrays must have the same length.");
+        }
+        List<SubSequence> batch = new ArrayList<>(startIndices.length);
+        for (int i = 0; i < startIndices.length; i++) {
+            SubSequence.validate(startIndices[i], endIndices[i], results[i]);
+            batch.add(new SubSequence(startIndices[i], endIndices[i], results[i]));
+        }
+        this.addSubSequences(batch);
+    }
+
+    /**
+     * Merges a batch of subsequences, sorted by start index, into the buffer.
+     * The batch is walked once; for each run of ranges that fall inside the same
+     * unprocessed subsequence, the pieces covering that subsequence are built 
+     * (unprocessed gaps between the ranges included) and replace it in the index.
+     * A range that runs on into following unprocessed subsequences absorbs them,
+     * and the run continues in the last one absorbed.
+     *
+     * @param sorted the validated batch, sorted by start and end index
+     */
+    private void mergeSortedSubSequences(List<SubSequence> sorted) {
+        int i = 0;
+        while (i < sorted.size()) {
+            Map.Entry<Integer, SubSequence> entry = 
+                this.subSequences.floorEntry(sorted.get(i).getStartIndex());
+            if (entry == null || entry.getValue().isProcessed()
+                || sorted.get(i).getStartIndex() > entry.getValue().getEndIndex()) {
+                i++; // No unprocessed subsequence to take this range
+                continue;
+            }
+            SubSequence existingSub = entry.getValue();
+            int segmentEnd = existingSub.getEndIndex();
+            int next = existingSub.getStartIndex(); // First index not yet covered by a piece
+            List<SubSequence> replaced = new ArrayList<>();
+            replaced.add(existingSub);
+            List<SubSequence> pieces = new ArrayList<>();
+
+            while (i < sorted.size() && sorted.get(i).getStartIndex() <= segmentEnd) {
+                SubSequence newSub = sorted.get(i++);
+                if (newSub.getStartIndex() < next) {
+                    continue; // Overlaps an earlier range
+                }
+                if (newSub.getEndIndex() > segmentEnd) {
+                    List<SubSequence> spanned = collectUnprocessedRun(segmentEnd, newSub.getEndIndex());
+                    if (spanned == null) {
+                        continue; // Runs over a processed subsequence or past the sequence
+                    }
+                    replaced.addAll(spanned);
+                    segmentEnd = spanned.get(spanned.size() - 1).getEndIndex();
+                }
+                if (newSub.getStartIndex() > next) {
+                    pieces.add(new SubSequence(next, newSub.getStartIndex() - 1, ""));
+                }
+                pieces.add(newSub);
+                next = newSub.getEndIndex() + 1;
+            }
+            if (pieces.isEmpty()) {
+                continue;
+            }
+            if (next <= segmentEnd) {
+                pieces.add(new SubSequence(next, segmentEnd, ""));
+            }
+
+            for (SubSequence subSequence : replaced) {
+                unindexSubSequence(subSequence);
+            }
+            for (SubSequence piece : pieces) {
+                indexSubSequence(piece);
+            }
+        }
+    }
+
+    /**
+     * Collects the subsequences that follow an index, up to the one containing the
+     * given end index, provided they are all unprocessed. The subsequences are 
+     * visited in order through the index, so this takes O(log n + k) for k subsequences.
+     *
+     * @param afterIndex the end index of the subsequence the run follows
+     * @param endIndex the index the run must reach
+     * @return the subsequences of the run, or null if one is processed or 
+     *         the sequence ends before the end index
+     */
+    private List<SubSequence> collectUnprocessedRun(int afterIndex, int endIndex) {
+        List<SubSequence> run = new ArrayList<>();
+        for (SubSequence subSequence : this.subSequences.tailMap(afterIndex, false).values()) {
+            if (subSequence.isProcessed()) {
+                return null;
+            }
+            run.add(subSequence);
+            if (subSequence.getEndIndex() >= endIndex) {
+                return run;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces a result with the equal string already held by the buffer, if there is one,
+     * so that repeated results share a single string however many subsequences carry them.
+     * Buffers that do not intern their results keep the string they are given.
+     *
+     * @param result the result of a subsequence about to be added
+     * @return the shared string equal to the result
+     */
+    private String canonicalResult(String result) {
+        if (result.isEmpty() || !internsResults()) {
+            return result;
+        }
+        if (this.results == null) {
+            this.results = new ResultTable();
+        }
+        return this.results.canonical(result);
+    }
+
+    /**
+     * Tells whether the buffer interns its results. The intern table never drops a result,
+     * so it holds every distinct result the buffer has been given; buffers that let go of
+     * their subsequences, or discard their results, return false to keep their memory
+     * bounded by the subsequences they hold.
+     *
+     * @return true to intern results, the default
+     */
+    protected boolean internsResults() {
+        return true;
+    }
+
+    /**
+     * Processes a new subsequence against existing subsequences in the buffer.
+     * The subsequences tile the original sequence, so the only candidate for
+     * the new subsequence is the one with the greatest start index not after
+     * the new start index, which the index finds in O(log n). A switch case
+     * based on specific matching criteria (e.g., exact match, start match)
+     * then determines how the existing subsequence is updated or split.
+     * Each add is reported to {@link SequenceBufferMetrics} unless it is part of a batch.
+     *
+     * @param newSub the new subsequence to be processed
+     * @param observed true to report the add as a single add
+     */
+    private void processNewSubSequence(SubSequence newSub, boolean observed) {
+        Map.Entry<Integer, SubSequence> entry = 
+            this.subSequences.floorEntry(newSub.getStartIndex());
+        if (entry == null) {
+            return;
+        }
+        SequenceBufferMetrics.SubSequenceAddEvent event = observed ? SequenceBufferMetrics.beginAdd() : null;
+        int sizeBefore = this.subSequences.size();
+        SubSequence existingSub = entry.getValue();
+        String caseType = determineCase(newSub, existingSub);
+        if (!"noMatch".equals(caseType) && !"spansSubsequences".equals(caseType)) {
+            existingSub = ownSubSequence(existingSub);
+        }
+
+        switch (caseType) {
+            case "exactMatch":
+                updateExistingSubSequence(newSub, existingSub);
+                break;
+            case "startMatch":
+                splitAndProcessSubsequence(existingSub, newSub, true);
+                break;
+            case "endMatch":
+                splitAndProcessSubsequence(existingSub, newSub, false);
+                break;
+            case "fullEncapsulation":
+                splitAndEncapsulateSubsequence(existingSub, newSub);
+                break;
+            case "spansSubsequences":
+                coalesceSubsequences(existingSub, newSub);
+                break;
+            case "noMatch":
+                // add error message
+                break;
+            default:
+                throw new IllegalStateException(
+                    "Unexpected case: " + caseType
+                );
+        }
+        SequenceBufferMetrics.endAdd(event, caseType, newSub, this.subSequences.size() - sizeBefore);
+    }
+
+    /**
+     * Determines the relationship between a new subsequence and an existing 
+     * unprocessed subsequence.
+     * Compares their start and end indices to classify the 
+     * relationship: exact match, start match, 
+     * end match, full encapsulation, spanning several subsequences, or no match.
+     * 
+     * Definitions:
+     * - "exactMatch": Identical start and end indices for both subsequences.
+     * - "startMatch": New subsequence starts at the same index but ends earlier.
+     * - "endMatch": New subsequence ends at the same index but starts later.
+     * - "fullEncapsulation": New subsequence starts after and ends before the existing one.
+     * - "spansSubsequences": New subsequence starts within the existing one and ends after it.
+     * - "noMatch": None of the above conditions are met.
+     *
+     * This method is only called if the existing subsequence has not been processed.
+     *
+     * @param newSub The new subsequence being compared.
+     * @param existingSub The existing subsequence to compare against.
+     * @return A string representing the type of match: "exactMatch", "startMatch", "endMatch", 
+     *         "fullEncapsulation", "spansSubsequences", or "noMatch".
+     */
+    private String determineCase(SubSequence newSub, SubSequence existingSub) {
+        if (!existingSub.isProcessed()) {
+            if (newSub.getStartIndex() == existingSub.getStartIndex() 
+                && newSub.getEndIndex() == existingSub.getEndIndex()) {
+                return "exactMatch";
+            } else if (newSub.getStartIndex() == existingSub.getStartIndex() 
+                && newSub.getEndIndex() < existingSub.getEndIndex()) {
+                return "startMatch";
+            } else if (newSub.getEndIndex() == existingSub.getEndIndex() 
+                && newSub.getStartIndex() > existingSub.getStartIndex()) {
+                return "endMatch";
+            } else if (newSub.getStartIndex() > existingSub.getStartIndex() 
+                && newSub.getEndIndex() < existingSub.getEndIndex()) {
+                return "fullEncapsulation";
+            } else if (newSub.getStartIndex() <= existingSub.getEndIndex()
+                && newSub.getEndIndex() > existingSub.getEndIndex()) {
+                return "spansSubsequences";
+            }
+        }
+        return "noMatch";
+    }
+
+    /**
+     * Updates an existing subsequence with the result from a new subsequence. This method
+     * simply replaces the result of the existing subsequence with that of the new subsequence.
+     *
+     * @param newSub the new subsequence whose result is to be used
+     * @param existingSub the existing subsequence that will be updated
+     */
+    private void updateExistingSubSequence(SubSequence newSub, SubSequence existingSub) {
+        unindexSubSequence(existingSub);
+        existingSub.setResult(newSub.getResult());
+        indexSubSequence(existingSub);
+    }
+
+    /**
+     * Modifies an existing subsequence based on overlap with a 
+     * new subsequence and splits if needed.
+     * If the start of the new subsequence aligns with the existing one, 
+     * it adjusts the end of the existing subsequence and may add 
+     * a new unprocessed subsequence for the remaining part.
+     * Conversely, if the end aligns, it adjusts the start of the existing subsequence
+     * and adds a new unprocessed subsequence for the leading part.
+     *
+     * @param existingSub The existing subsequence that 
+     *        overlaps with the new subsequence.
+     * @param newSub The new subsequence that overlaps 
+     *        with the existing subsequence.
+     * @param isStartAligned A boolean indicating if the start 
+     *        of the new and existing subsequences align.
+     */
+    private void splitAndProcessSubsequence(
+        SubSequence existingSub,
+        SubSequence newSub,
+        boolean isStartAligned
+    ) {
+
+        if (isStartAligned) {
+            handleStartAlignment(existingSub, newSub);
+        } else {
+            handleEndAlignment(existingSub, newSub);
+        }
+    }
+
+    /**
+     * Handles the case where the new subsequence starts where existingSub starts.
+     * Adjusts the end of the existing subsequence and may add a new unprocessed subsequence.
+     */
+    private void handleStartAlignment(
+        SubSequence existingSub,
+        SubSequence newSub
+    ) {
+        SubSequence newUnprocessedSub = new SubSequence(
+            newSub.getEndIndex() + 1,
+            existingSub.getEndIndex(),
+            ""
+        );
+        unindexSubSequence(existingSub);
+        existingSub.setEndIndex(newSub.getEndIndex());
+        existingSub.setResult(newSub.getResult());
+        indexSubSequence(existingSub);
+
+        if (newUnprocessedSub.getStartIndex() <= newUnprocessedSub.getEndIndex()) {
+            indexSubSequence(newUnprocessedSub);
+        }
+    }
+
+    /**
+     * Handles the case where the new subsequence ends where existingSub ends.
+     * Adjusts the start of the existing subsequence and may add a new unprocessed subsequence.
+     * The leading part takes over the index entry of the existing subsequence,
+     * which is re-indexed under its new start index.
+     */
+    private void handleEndAlignment(
+        SubSequence existingSub,
+        SubSequence newSub
+    ) {
+        SubSequence newUnprocessedSub = new SubSequence(
+            existingSub.getStartIndex(),
+            newSub.getStartIndex() - 1,
+            ""
+        );
+        unindexSubSequence(existingSub);
+        existingSub.setStartIndex(newSub.getStartIndex());
+        existingSub.setResult(newSub.getResult());
+
+        if (newUnprocessedSub.getStartIndex() <= newUnprocessedSub.getEndIndex()) {
+            indexSubSequence(newUnprocessedSub);
+        }
+        indexSubSequence(existingSub);
+    }
+
+    /**
+     * Splits an existing subsequence around a new subsequence fully encapsulated 
+     * within the existing one.This method adjusts the existing subsequence
+     * to match the new one and adds new subsequences for 
+     * any leading and trailing parts that remain unprocessed.
+     *
+     * @param existingSub The existing subsequence that is being encapsulated 
+     *                    by the new subsequence.
+     * @param newSub The new subsequence encapsulated within the existing subsequence.
+     */
+    private void splitAndEncapsulateSubsequence(
+        SubSequence existingSub, 
+        SubSequence newSub
+    ) {
+
+        SubSequence before = new SubSequence(
+            existingSub.getStartIndex(),
+            newSub.getStartIndex() - 1,
+            ""
+        );
+        SubSequence after = new SubSequence(
+            newSub.getEndIndex() + 1,
+            existingSub.getEndIndex(),
+            ""
+        );
+
+        unindexSubSequence(existingSub);
+        existingSub.setStartIndex(newSub.getStartIndex());
+        existingSub.setEndIndex(newSub.getEndIndex());
+        existingSub.setResult(newSub.getResult());
+
+        // The leading part always exists here and takes over the old index entry
+        indexSubSequence(before);
+        indexSubSequence(existingSub);
+        if (after.getEndIndex() >= after.getStartIndex()) {
+            indexSubSequence(after);
+        }
+    }
+
+    /**
+     * Replaces a run of unprocessed subsequences, starting with an existing one, by a new
+     * subsequence that spans them, keeping any uncovered leading or trailing part 
+     * unprocessed. If the run reaches a processed subsequence, or the new subsequence 
+     * ends past the sequence, the buffer is left unchanged.
+     *
+     * @param existingSub The unprocessed subsequence the new subsequence starts in.
+     * @param newSub The new subsequence, ending after the existing subsequence.
+     */
+    private void coalesceSubsequences(
+        SubSequence existingSub,
+        SubSequence newSub
+    ) {
+        List<SubSequence> spanned = collectUnprocessedRun(existingSub.getEndIndex(), newSub.getEndIndex());
+        if (spanned == null) {
+            return;
+        }
+        SubSequence last = spanned.get(spanned.size() - 1);
+        SubSequence before = new SubSequence(
+            existingSub.getStartIndex(),
+            newSub.getStartIndex() - 1,
+            ""
+        );
+        SubSequence after = new SubSequence(
+            newSub.getEndIndex() + 1,
+            last.getEndIndex(),
+            ""
+        );
+
+        unindexSubSequence(existingSub);
+        for (SubSequence subSequence : spanned) {
+            unindexSubSequence(subSequence);
+        }
+        if (before.getEndIndex() >= before.getStartIndex()) {
+            indexSubSequence(before);
+        }
+        indexSubSequence(newSub);
+        if (after.getEndIndex() >= after.getStartIndex()) {
+            indexSubSequence(after);
+        }
+    }
+
+    /**
+     * Returns a string representation of the results of the subsequences in the buffer,
+     * separated by the buffer's result delimiter.
+     * Unprocessed subsequences are represented by "*".
+     * The string is copied from the chunks of {@link #resultSequence()} on every call,
+     * so a poll that needs no string should read the sequence, or
+     * {@link #writeResultTo(Appendable)}, instead.
+     *
+     * @return a formatted string representation of the subsequences' results
+     */
+    public String resultToString() {
+        return assembleResult().toString();
+    }
+
+    /**
+     * Writes the results of the subsequences in the buffer to the destination, 
+     * one chunk at a time, so huge results can be streamed to a Writer.
+     *
+     * @param destination the destination the results are appended to
+     * @throws IOException if the destination cannot be written to
+     */
+    public void writeResultTo(Appendable destination) throws IOException {
+        if (destination == null) {
+            throw new IllegalArgumentException("The destination must not be null.");
+        }
+        assembleResult().writeTo(destination);
+    }
+
+    /**
+     * Returns the results of the subsequences in the buffer as a rope over the
+     * assembled chunks, which shares their strings rather than copying them.
+     *
+     * @return the results of the subsequences
+     */
+    public CharSequence resultSequence() {
+        return assembleResult();
+    }
+
+    /**
+     * Assembles the results of the subsequences from chunks of up to twice
+     * {@value #RESULT_CHUNK_SIZE} consecutive subsequences. Each chunk keeps its
+     * assembled results until one of its subsequences changes, so after a change
+     * only the chunks it touched are assembled again, and the rope over the chunks is
+     * kept until the next change. The chunks are set up the first time results are read.
+     *
+     * @return the results of the subsequences
+     */
+    private ResultRope assembleResult() {
+        if (this.assembledResult != null) {
+            return this.assembledResult;
+        }
+        if (this.resultChunks == null) {
+            this.resultChunks = new TreeMap<>();
+            ResultChunk chunk = new ResultChunk();
+            this.resultChunks.put(Integer.MIN_VALUE, chunk);
+            for (Integer key : this.subSequences.keySet()) {
+                if (chunk.size == RESULT_CHUNK_SIZE) {
+                    chunk = new ResultChunk();
+                    this.resultChunks.put(key, chunk);
+                }
+                chunk.size++;
+            }
+        }
+        String delimiter = getResultDelimiter();
+        List<String> texts = new ArrayList<>(this.resultChunks.size());
+        for (Map.Entry<Integer, ResultChunk> entry : this.resultChunks.entrySet()) {
+            ResultChunk chunk = entry.getValue();
+            if (chunk.size == 0) {
+                continue; // Only the first chunk is kept when empty
+            }
+            if (chunk.text == null) {
+                StringBuilder text = new StringBuilder();
+                int remaining = chunk.size;
+                for (SubSequence subSequence : this.subSequences.tailMap(entry.getKey(), true).values()) {
+                    if (remaining-- < chunk.size) {
+                        text.append(delimiter);
+                    }
+                    text.append(subSequence.isProcessed() ? subSequence.getResult() : "*");
+                    if (remaining == 0) {
+                        break;
+                    }
+                }
+                chunk.text = text.toString();
+            }
+            texts.add(chunk.text);
+        }
+        this.assembledResult = new ResultRope(texts.toArray(new String[0]), delimiter);
+        return this.assembledResult;
+    }
+
+    /**
+     * Records that a subsequence has been indexed or removed under a key: the chunk of
+     * results covering the key is assembled again when next read. A chunk that grows past
+     * twice {@value #RESULT_CHUNK_SIZE} subsequences is split in two, and an empty chunk
+     * is dropped, leaving its keys to the chunk before it.
+     *
+     * @param key the index key of the subsequence
+     * @param sizeChange the change in the number of subsequences under the key
+     */
+    private void changeResultChunk(int key, int sizeChange) {
+        this.assembledResult = null;
+        if (this.resultChunks == null) {
+            return; // Nothing assembled yet
+        }
+        Map.Entry<Integer, ResultChunk> entry = this.resultChunks.floorEntry(key);
+        ResultChunk chunk = entry.getValue();
+        chunk.text = null;
+        chunk.size += sizeChange;
+        if (chunk.size == 0 && entry.getKey() != Integer.MIN_VALUE) {
+            this.resultChunks.remove(entry.getKey());
+        } else if (chunk.size > 2 * RESULT_CHUNK_SIZE) {
+            Iterator<Integer> keys = this.subSequences.tailMap(entry.getKey(), true).keySet().iterator();
+            for (int i = 0; i < RESULT_CHUNK_SIZE; i++) {
+                keys.next();
+            }
+            ResultChunk second = new ResultChunk();
+            second.size = chunk.size - RESULT_CHUNK_SIZE;
+            chunk.size = RESULT_CHUNK_SIZE;
+            this.resultChunks.put(keys.next(), second);
+        }
+    }
+
+    /**
+     * A run of consecutive subsequences whose results are assembled together.
+     */
+    private static final class ResultChunk {
+
+        int size; // Number of subsequences in the run
+        String text; // Results of the run joined by the delimiter, null until assembled
+    }
+
+    /**
+     * Retrieves the string placed between the results of consecutive subsequences.
+     *
+     * @return the result delimiter, empty by default
+     */
+    protected String getResultDelimiter() {
+        return "";
+    }
+
+    /**
+     * Adds a subsequence to the index under its start index, and to the 
+     * unprocessed subsequences if it has no result yet.
+     * IDs after the new subsequence no longer match their positions, 
+     * so they are marked for renumbering.
+     *
+     * @param subSequence the subsequence to index
+     */
+    protected void indexSubSequence(SubSequence subSequence) {
+        ensureOwnIndex();
+        if (subSequence.owner == null) {
+            subSequence.owner = this.generation;
+        }
+        SubSequence replaced = this.subSequences.put(subSequence.getStartIndex(), subSequence);
+        this.subSequenceIDsStale = true;
+        changeResultChunk(subSequence.getStartIndex(), replaced == null ? 1 : 0);
+        if (!subSequence.isProcessed()) {
+            this.unprocessedSubSequences.put(subSequence.getStartIndex(), subSequence);
+            if (this.firstUnprocessed == null 
+                || subSequence.getStartIndex() <= this.firstUnprocessed.getStartIndex()) {
+                this.firstUnprocessed = subSequence;
+            }
+        }
+    }
+
+    /**
+     * Removes a subsequence from the index and the unprocessed subsequences.
+     * This must be called before the start index or result of an indexed 
+     * subsequence is changed, since both are looked up by start index.
+     *
+     * @param subSequence the subsequence to remove
+     */
+    protected void unindexSubSequence(SubSequence subSequence) {
+        ensureOwnIndex();
+        int startIndex = subSequence.getStartIndex();
+        if (this.subSequences.get(startIndex) == subSequence) {
+            this.subSequences.remove(startIndex);
+            this.subSequenceIDsStale = true;
+            changeResultChunk(startIndex, -1);
+        }
+        if (this.unprocessedSubSequences.get(startIndex) == subSequence) {
+            this.unprocessedSubSequences.remove(startIndex);
+            if (this.firstUnprocessed == subSequence) {
+                Map.Entry<Integer, SubSequence> first = this.unprocessedSubSequences.firstEntry();
+                this.firstUnprocessed = first == null ? null : first.getValue();
+            }
+        }
+    }
+
+    /**
+     * Reassigns sequential identifiers to all subsequences in the buffer,
+     * if a split has left them out of date. The index already keeps the 
+     * subsequences ordered by start index, so each subsequence receives 
+     * an ID corresponding to its position in a single walk, 
+     * starting from 1 and incrementing sequentially, and the positions are
+     * recorded for lookups by index.
+     * IDs are refreshed lazily by the methods that expose them rather 
+     * than after every split. A subsequence shared with a fork is never changed,
+     * so one whose ID no longer matches its position here is replaced by a copy first.
+     */
+    protected void refreshSubSequenceIDs() {
+        if (!this.subSequenceIDsStale) {
+            return;
+        }
+        SubSequence[] ordered = new SubSequence[this.subSequences.size()];
+        int position = 0;
+        for (SubSequence subSequence : this.subSequences.values()) {
+            ordered[position++] = subSequence;
+        }
+        for (position = 0; position < ordered.length; position++) {
+            SubSequence subSequence = ordered[position];
+            if (subSequence.ID == null || subSequence.ID != position + 1) {
+                if (subSequence.owner != this.generation) {
+                    subSequence = copySharedSubSequence(subSequence);
+                    ordered[position] = subSequence;
+                }
+                subSequence.ID = position + 1;
+            }
+        }
+        this.positions = ordered;
+        this.subSequenceIDsStale = false;
+    }
+
+    /**
+     * Replaces a subsequence shared with a fork by a copy this buffer owns, so its ID
+     * can be set. The copy covers the same indices with the same result, so nothing
+     * assembled from the subsequences is affected.
+     *
+     * @param shared an indexed subsequence owned by another generation
+     * @return the copy now indexed in its place
+     */
+    private SubSequence copySharedSubSequence(SubSequence shared) {
+        ensureOwnIndex();
+        SubSequence copy = new SubSequence(shared.getStartIndex(), shared.getEndIndex(), shared.getResult());
+        copy.owner = this.generation;
+        this.subSequences.put(copy.getStartIndex(), copy);
+        if (!copy.isProcessed()) {
+            this.unprocessedSubSequences.put(copy.getStartIndex(), copy);
+            if (this.firstUnprocessed == shared) {
+                this.firstUnprocessed = copy;
+            }
+        }
+        return copy;
+    }
+   
+}
@@ -0,0 +1,102 @@
+package src;
+
+import java.util.Arrays;
+
+class BoyerMooreSubStringSearch implements SubStringSearch {
+
+    private static final int R = 256; // Characters are hashed into this many skip buckets
+
+    private BoyerMoore compiled; // Tables of the last pattern, reused while the pattern repeats
+
+    /**
+     * A pattern and its skip tables, never changed once built, so a search that reads
+     * it once sees tables that belong to its pattern even if another thread compiles
+     * a different one meanwhile.
+     */
+    static final class BoyerMoore {
+
+        private final String pattern;
+        private final int[] right; // Rightmost index in the pattern of a character in each bucket, or -1
+        private final int[] goodSuffix; // Shift after a mismatch just left of each suffix of the pattern
+
+        /**
+         * Builds the skip tables for a pattern. Characters sharing a bucket share the
+         * rightmost index of any of them, which can only shorten a bad-character shift,
+         * so a match is never skipped.
+         */
+        BoyerMoore(String pattern) {
+            this.pattern = pattern;
+            int M = pattern.length();
+            right = new int[R];
+            Arrays.fill(right, -1);
+            for (int j = 0; j < M; j++) {
+                right[pattern.charAt(j) & (R - 1)] = j;
+            }
+            // shift[j] applies when pattern[j..] matched and pattern[j - 1] did not; shift[0] after a match
+            int[] shift = new int[M + 1];
+            int[] border = new int[M + 1]; // Start of the widest border of each suffix
+            int i = M, j = M + 1;
+            border[i] = j;
+            while (i > 0) {
+                while (j <= M && pattern.charAt(i - 1) != pattern.charAt(j - 1)) {
+                    if (shift[j] == 0) {
+                        shift[j] = j - i;
+                    }
+                    j = border[j];
+                }
+                border[--i] = --j;
+            }
+            j = border[0];
+            for (i = 0; i <= M; i++) {
+                if (shift[i] == 0) {
+                    shift[i] = j;
+                }
+                if (i == j) {
+                    j = border[j];
+                }
+            }
+            goodSuffix = shift;
+        }
+
+        /**
+         * Compares each alignment right to left, shifting by the larger of the
+         * bad-character and good-suffix rules on a mismatch.
+         */
+        int search(CharSequence txt, int from, int to) {
+            int M = pattern.length();
+            for (int i = from; i <= to - M;) {
+                int j = M - 1;
+                while (j >= 0 && pattern.charAt(j) == txt.charAt(i + j)) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+                i += Math.max(goodSuffix[j + 1], j - right[txt.charAt(i + j) & (R - 1)]);
+            }
+            return to;
+        }
+    }
+
+    @Override
+    public int search(String pattern, String txt) {
+        return search(pattern, txt, 0, txt.length());
+    }
+
+    /**
+     * Searches a range in place. The tables are kept and reused while the same
+     * pattern is searched for; an instance may be shared between threads.
+     */
+    @Override
+    public int search(String pattern, CharSequence txt, int from, int to) {
+        if (pattern.isEmpty()) {
+            return from;
+        }
+        BoyerMoore boyerMoore = compiled;
+        if (boyerMoore == null || !boyerMoore.pattern.equals(pattern)) {
+            boyerMoore = new BoyerMoore(pattern);
+            compiled = boyerMoore;
+        }
+        return boyerMoore.search(txt, from, to);
+    }
+}
@@ -0,0 +1,280 @@
+package src;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.LinkedList;
+import java.util.TreeMap;
+
+/**
+ * A concrete implementation of {@link AbstractSequenceBuffer} tailored 
+ * for managing buffers of strings.
+ * This class is specifically designed to handle operations on a sequence of strings, 
+ * including the addition of subsequences and manipulation of these subsequences 
+ * based on defined criteria.
+ * The cells are packed into one contiguous character array, with an offsets array 
+ * marking where each cell starts, so no per-cell String is kept.
+ */
+class BrfBuffer extends AbstractSequenceBuffer<String> {
+
+    private static final char CELL_DELIMITER = '-'; // Separates cells in extracted substrings
+
+    private char[] cells = new char[0]; // Characters of all cells, stored back to back
+    private int[] cellOffsets = {0}; // Start of each cell in cells, plus the total length
+
+    /**
+     * Constructs a BrfBuffer from an array of strings.
+     * Initializes the original sequence with the provided
+     * array and sets up an initial subsequence covering the entire array.
+     *
+     * @param inputArray the array of strings to be managed by this buffer
+     */
+    BrfBuffer(String[] inputArray) {
+        this.subSequences = new TreeMap<>();
+        this.subSequenceID = new LinkedList<>();
+
+        try {
+            int[] offsets = new int[inputArray.length + 1];
+            for (int i = 0; i < inputArray.length; i++) {
+                offsets[i + 1] = offsets[i] + inputArray[i].length();
+            }
+            char[] packed = new char[offsets[inputArray.length]];
+            for (int i = 0; i < inputArray.length; i++) {
+                inputArray[i].getChars(0, inputArray[i].length(), packed, offsets[i]);
+            }
+            this.cells = packed;
+            this.cellOffsets = offsets;
+            this.addSubSequence(0, inputArray.length - 1, "");
+        } catch (Exception e) {
+            System.err.println("Initialization failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs a BrfBuffer over cells that are already packed, 
+     * such as those restored from a snapshot. The arrays are used in place.
+     *
+     * @param cells the characters of all cells, stored back to back
+     * @param cellOffsets the start of each cell in cells, followed by the total length
+     */
+    BrfBuffer(char[] cells, int[] cellOffsets) {
+        if (cells == null || cellOffsets == null || cellOffsets.length == 0
+            || cellOffsets[cellOffsets.length - 1] != cells.length) {
+            throw new IllegalArgumentException("Cell offsets do not match the packed cells.");
+        }
+        this.subSequences = new TreeMap<>();
+        this.subSequenceID = new LinkedList<>();
+        this.cells = cells;
+        this.cellOffsets = cellOffsets;
+        this.addSubSequence(0, cellOffsets.length - 2, "");
+    }
+
+    /**
+     * Constructs an empty BrfBuffer over the cells of another, for a fork.
+     */
+    private BrfBuffer(BrfBuffer source) {
+        this.subSequenceID = new LinkedList<>();
+        this.cells = source.cells;
+        this.cellOffsets = source.cellOffsets;
+    }
+
+    /**
+     * Creates an empty BrfBuffer sharing this buffer's packed cells.
+     *
+     * @return the branch to fork into
+     */
+    @Override
+    protected AbstractSequenceBuffer<String> createBranch() {
+        return new BrfBuffer(this);
+    }
+
+    /**
+     * Retrieves the packed cells, which identify the buffers forked from one another.
+     *
+     * @return the packed cells
+     */
+    @Override
+    protected Object getOriginalStorage() {
+        return this.cells;
+    }
+
+    /**
+     * Searches the packed cells in place when every cell is a single character,
+     * so that indices of the characters are indices of the cells.
+     *
+     * @return the packed cells as a character sequence
+     */
+    @Override
+    protected CharSequence getSearchableCharacters() {
+        if (this.cells.length != getOriginalSequenceLength()) {
+            return super.getSearchableCharacters();
+        }
+        return java.nio.CharBuffer.wrap(this.cells);
+    }
+
+    /**
+     * Retrieves the packed characters of all cells.
+     *
+     * @return the packed cells, which must not be modified
+     */
+    char[] getPackedCells() {
+        return this.cells;
+    }
+
+    /**
+     * Retrieves the start offset of each cell within the packed cells,
+     * followed by the total number of packed characters.
+     *
+     * @return the cell offsets, which must not be modified
+     */
+    int[] getCellOffsets() {
+        return this.cellOffsets;
+    }
+
+    /**
+     * Retrieves the number of cells in the original sequence.
+     *
+     * @return the length of the original sequence
+     */
+    @Override
+    protected int getOriginalSequenceLength() {
+        return this.cellOffsets.length - 1;
+    }
+
+    /**
+     * Copies a single cell of the original sequence out of the packed storage.
+     *
+     * @param index the index of the cell within the original sequence
+     * @return the cell as a string
+     */
+    @Override
+    protected String getOriginalElement(int index) {
+        int start = this.cellOffsets[index];
+        return new String(this.cells, start, this.cellOffsets[index + 1] - start);
+    }
+
+    /**
+     * Extracts a substring from the original sequence based on the indices of a given subsequence.
+     * Validates the subsequence's indices to ensure they are within the 
+     * bounds of the original sequence.
+     *
+     * @param subSeq the subsequence from which to extract the substring
+     * @return the extracted substring
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSeq) {
+        validateSubSequence(subSeq);
+        int cellCount = subSeq.getLength() + 1;
+        int charCount = this.cellOffsets[subSeq.getEndIndex() + 1] 
+            - this.cellOffsets[subSeq.getStartIndex()];
+        StringBuilder builder = new StringBuilder(charCount + cellCount - 1);
+        appendCells(subSeq, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes the cells covered by a given subsequence, joined by "-", 
+     * directly into the supplied destination without building an intermediate string.
+     *
+     * @param subSeq the subsequence whose cells are written
+     * @param destination the destination the cells are appended to
+     * @throws IOException if the destination cannot be written to
+     */
+    public void appendSubstringFromSubSequence(SubSequence subSeq, Appendable destination) 
+        throws IOException {
+        validateSubSequence(subSeq);
+        if (destination instanceof StringBuilder) {
+            appendCells(subSeq, (StringBuilder) destination);
+            return;
+        }
+        for (int i = subSeq.getStartIndex(); i <= subSeq.getEndIndex(); i++) {
+            if (i != subSeq.getStartIndex()) {
+                destination.append(CELL_DELIMITER);
+            }
+            int start = this.cellOffsets[i];
+            if (destination instanceof Writer) {
+                ((Writer) destination).write(this.cells, start, this.cellOffsets[i + 1] - start);
+            } else {
+                for (int c = start; c < this.cellOffsets[i + 1]; c++) {
+                    destination.append(this.cells[c]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the cells covered by a validated subsequence to a builder,
+     * copying each cell straight out of the packed storage.
+     */
+    private void appendCells(SubSequence subSeq, StringBuilder builder) {
+        for (int i = subSeq.getStartIndex(); i <= subSeq.getEndIndex(); i++) {
+            if (i != subSeq.getStartIndex()) { 
+                builder.append(CELL_DELIMITER); 
+            }
+            int start = this.cellOffsets[i];
+            builder.append(this.cells, start, this.cellOffsets[i + 1] - start);
+        }
+    }
+
+    /**
+     * Checks that a subsequence is present and lies within the bounds of the original sequence.
+     */
+    private void validateSubSequence(SubSequence subSeq) {
+        if (subSeq == null) {
+            throw new IllegalArgumentException("SubSequence cannot be null.");
+        }
+
+        if (subSeq.getStartIndex() < 0 
+            || subSeq.getEndIndex() >= getOriginalSequenceLength()) {
+            throw new IndexOutOfBoundsException("SubSequence indices are out of bounds.");
+        }
+
+        if (subSeq.getStartIndex() > subSeq.getEndIndex()) {
+            throw new IllegalArgumentException("Start index cannot be greater than end index.");
+        }
+    }
+
+    /**
+     * Prints the details of all subsequences in the buffer, including IDs, indices, 
+     * substrings,processing status, and results.
+     */
+    public void printSubSequences() {
+        System.out.println("_Subsequences_");
+        refreshSubSequenceIDs();
+        for (SubSequence subSeq : subSequences.values()) {
+            String output = String.format(
+                "ID: %s, Indices: [%d:%d], Substring: '%s', Processed: %s, Result: '%s'",
+                subSeq.ID, subSeq.getStartIndex(), subSeq.getEndIndex(),
+                extractSubstringFromSubSequence(subSeq),
+                subSeq.isProcessed(), subSeq.getResult()
+            );
+            System.out.println(output);
+        }
+    }
+
+    /**
+     * Prints comprehensive details about the sequence buffer, including its size and contents,
+     * as well as details about each subsequence.
+     */
+    public void printSequenceBuffer() {
+
+        System.out.println();  // newline
+        System.out.println("+-------------------------------------------------------------+");
+        System.out.println("| Sequence Buffer Details                                     |");
+        System.out.println("+-------------------------------------------------------------+");
+        System.out.println("Size of Original Sequence: " + getOriginalSequenceLength());
+        System.out.println("+-------------------------------------------------------------+");
+        System.out.println("| Contents of Original Sequence:                              |");
+        System.out.println("+-------------------------------------------------------------+");
+        System.out.println("| Index | Element | Original Sequence                          |");
+        System.out.println("+-------------------------------------------------------------+");
+        for (int i = 0; i < getOriginalSequenceLength(); i++) {
+            String item = getOriginalElement(i);
+            System.out.printf("| %-7d | %-7s | %-24s |%n", i, "", item);
+        }
+        System.out.println("+-------------------------------------------------------------+");
+        System.out.println(String.format("| Number of SubSequences: ", + subSequences.size()));
+        System.out.println("+-------------------------------------------------------------+");
+        printSubSequences();
+    }
+}
@@ -0,0 +1,9 @@
+package src;
+
+class BruteForceSubStringSearch implements SubStringSearch {
+
+    @Override
+    public int search(String pattern, String txt) {
+        return search(pattern, txt, 0, txt.length());
+    }
+}
@@ -0,0 +1,190 @@
+package src;
+
+import java.util.TreeMap;
+
+/**
+ * A concrete implementation of {@link AbstractSequenceBuffer} specifically for 
+ * handling character sequences.
+ * This class extends the abstract functionality to manage a sequence of characters, 
+ * allowing for operations like adding subsequences and extracting substrings 
+ * based on those subsequences.
+ * The characters are held in the caller's storage without boxing or copying, 
+ * and subsequences are exposed as {@link CharSequence} views over it.
+ */
+class CharBuffer extends AbstractSequenceBuffer<Character> {
+
+    private final CharSequence characters; // Original sequence, shared with the caller
+    
+    /**
+     * Constructs a CharBuffer from an array of characters, initializing the original sequence
+     * and setting up an initial subsequence that spans the entire array.
+     * The array is wrapped rather than copied, so it must not be modified afterwards.
+     *
+     * @param inputArray the array of characters to be managed by this buffer
+     */
+    CharBuffer(char[] inputArray) {
+        this(java.nio.CharBuffer.wrap(inputArray));
+    }
+
+    /**
+     * Constructs a CharBuffer over an existing character sequence, 
+     * setting up an initial subsequence that spans the entire sequence.
+     * The sequence is used in place, so it must not be modified afterwards.
+     *
+     * @param input the characters to be managed by this buffer
+     */
+    CharBuffer(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input sequence cannot be null.");
+        }
+        this.characters = input;
+        this.subSequences = new TreeMap<>();
+        this.addSubSequence(0, input.length() - 1, "");
+    }
+
+    /**
+     * Constructs an empty CharBuffer over the characters of another, for a fork.
+     */
+    private CharBuffer(CharBuffer source) {
+        this.characters = source.characters;
+    }
+
+    /**
+     * Creates an empty CharBuffer sharing this buffer's characters.
+     *
+     * @return the branch to fork into
+     */
+    @Override
+    protected AbstractSequenceBuffer<Character> createBranch() {
+        return new CharBuffer(this);
+    }
+
+    /**
+     * Retrieves the characters, which identify the buffers forked from one another.
+     *
+     * @return the original characters
+     */
+    @Override
+    protected Object getOriginalStorage() {
+        return this.characters;
+    }
+
+    /**
+     * Searches the characters the buffer was built over in place.
+     *
+     * @return the original characters
+     */
+    @Override
+    protected CharSequence getSearchableCharacters() {
+        return this.characters;
+    }
+
+    /**
+     * Retrieves the original sequence as the character sequence the buffer was built over.
+     *
+     * @return the original characters, which must not be modified
+     */
+    CharSequence getCharacters() {
+        return this.characters;
+    }
+
+    /**
+     * Retrieves the number of characters in the original sequence.
+     *
+     * @return the length of the original sequence
+     */
+    @Override
+    protected int getOriginalSequenceLength() {
+        return this.characters.length();
+    }
+
+    /**
+     * Converts a single character of the original sequence into a string.
+     *
+     * @param index the index of the character within the original sequence
+     * @return the character as a string
+     */
+    @Override
+    protected String getOriginalElement(int index) {
+        return String.valueOf(this.characters.charAt(index));
+    }
+
+    /**
+     * Character results are concatenated with a hyphen "-" as a delimiter.
+     *
+     * @return the result delimiter
+     */
+    @Override
+    protected String getResultDelimiter() {
+        return "-";
+    }
+
+    /**
+     * Extracts the substring from the original sequence that 
+     * corresponds to the indices of a given subsequence.
+     *
+     * @param subSeq the subsequence from which to extract the substring
+     * @return the substring from the original sequence corresponding to the 
+     *         subsequence's indices
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSeq) {
+        return viewSubSequence(subSeq).toString();
+    }
+
+    /**
+     * Returns a view of the characters of the original sequence that correspond 
+     * to the indices of a given subsequence. The view reads through to the 
+     * original storage, so no characters are copied.
+     *
+     * @param subSeq the subsequence to view
+     * @return a character sequence over the subsequence's indices
+     */
+    public CharSequence viewSubSequence(SubSequence subSeq) {
+        if (subSeq == null) {
+            throw new IllegalArgumentException("SubSequence cannot be null.");
+        }
+    
+        if (subSeq.getStartIndex() < 0 || subSeq.getEndIndex() >= characters.length()) {
+            throw new IndexOutOfBoundsException("SubSequence indices are out of bounds.");
+        }
+    
+        if (subSeq.getStartIndex() > subSeq.getEndIndex()) {
+            throw new IllegalArgumentException("Start index cannot be greater than end index.");
+        }
+    
+        return new CharSequenceView(characters, subSeq.getStartIndex(), subSeq.getLength() + 1);
+    }
+
+    /**
+     * Prints the details of all subsequences in the buffer,
+     * including IDs, indices, substrings, and processing status.
+     */
+    public void printSubSequences() {
+        System.out.println("_Subsequences_");
+        refreshSubSequenceIDs();
+        for (SubSequence subSeq : subSequences.values()) {
+            String output = String.format("ID: %s,Indx: [%d:%d],Str: '%s',Proc: %s,Result: '%s'",
+                                          subSeq.ID, subSeq.getStartIndex(), subSeq.getEndIndex(),
+                                          viewSubSequence(subSeq),
+                                          subSeq.isProcessed(), subSeq.getResult());
+            System.out.println(output);
+        }
+    }
+
+    /**
+     * Prints comprehensive details about the sequence buffer,
+     * including the size and contents of the original sequence
+     * and detailed information about each subsequence.
+     */
+    public void printSequenceBuffer() {
+        System.out.println("__Sequence Buffer Details__");
+        System.out.println("Size of Original Sequence: " + characters.length());
+        System.out.println("Contents of Original Sequence:");
+        for (int i = 0; i < characters.length(); i++) {
+            char item = characters.charAt(i);
+            System.out.print("[" + i + ":" + item + "] ");
+        }
+        System.out.println("\nNumber of SubSequences: " + subSequences.size());
+        printSubSequences();  // This will print the details of each subsequence
+    }
+}
@@ -0,0 +1,64 @@
+package src;
+
+/**
+ * A read-only {@link CharSequence} over a range of another character sequence.
+ * Characters are read through to the source, so creating a view costs 
+ * a single small object regardless of its length.
+ */
+class CharSequenceView implements CharSequence {
+
+    private final CharSequence source; // Sequence the view reads from
+    private final int offset; // Index in the source of the first character of the view
+    private final int length; // Number of characters in the view
+
+    /**
+     * Constructs a view over {@code length} characters of the source, starting at {@code offset}.
+     *
+     * @param source the sequence to read from
+     * @param offset the index in the source of the first character
+     * @param length the number of characters in the view
+     */
+    CharSequenceView(CharSequence source, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > source.length()) {
+            throw new IndexOutOfBoundsException(
+                String.format("View [%d:%d] is out of bounds [0, %d]",
+                offset, offset + length, source.length())
+            );
+        }
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(
+                String.format("Index %d is out of bounds [0, %d]", index, this.length - 1)
+            );
+        }
+        return this.source.charAt(this.offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException(
+                String.format("Range [%d:%d] is out of bounds [0, %d]", start, end, this.length)
+            );
+        }
+        return new CharSequenceView(this.source, this.offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(this.length)
+            .append(this.source, this.offset, this.offset + this.length)
+            .toString();
+    }
+}
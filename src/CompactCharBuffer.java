@@ -0,0 +1,329 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * A character {@link SequenceBuffer} that keeps its subsequences in parallel primitive
+ * arrays rather than as {@link SubSequence} objects. Subsequence i covers
+ * {@code starts[i]..ends[i]}, and its result has the id {@code resultIds[i]}, or it is
+ * unprocessed if its flags lack {@link #PROCESSED}. The arrays are the record table of an
+ * {@link AbstractSegmentTableBuffer}, so a subsequence is found by binary search, and a
+ * split shifts the tail of the arrays with a single {@link System#arraycopy}. Apart from
+ * growing the arrays, adds and iteration through a {@link Cursor} allocate nothing.
+ * The shift makes a split near the front of a very large buffer cost O(n), so ranges
+ * arriving in random order are best added as a batch, which is merged in a single pass.
+ */
+class CompactCharBuffer extends AbstractSegmentTableBuffer {
+
+    static final byte PROCESSED = 1; // Flag set on subsequences that have a result
+
+    private final CharSequence characters; // Original sequence, shared with the caller
+    private int[] starts; // Start index of each subsequence, in increasing order
+    private int[] ends; // End index of each subsequence
+    private int[] resultIds; // Id of each subsequence's result, -1 if unprocessed
+    private byte[] flags; // PROCESSED for subsequences that have a result
+    private int[] mergedStarts; // Start indices a batch is merged into, swapped in when it is done
+    private int[] mergedEnds; // End indices a batch is merged into
+    private int[] mergedResultIds; // Result ids a batch is merged into
+    private byte[] mergedFlags; // Flags a batch is merged into
+
+    /**
+     * Constructs a CompactCharBuffer over a character sequence, setting up an
+     * initial subsequence that spans the entire sequence.
+     * The sequence is used in place, so it must not be modified afterwards.
+     *
+     * @param input the characters to be managed by this buffer
+     */
+    CompactCharBuffer(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input sequence cannot be null.");
+        }
+        if (input.length() == 0) {
+            throw new IllegalArgumentException("Invalid start or end index");
+        }
+        this.characters = input;
+        this.starts = new int[INITIAL_RECORDS];
+        this.ends = new int[INITIAL_RECORDS];
+        this.resultIds = new int[INITIAL_RECORDS];
+        this.flags = new byte[INITIAL_RECORDS];
+        initializeRecords(input.length());
+    }
+
+    /**
+     * Constructs a CompactCharBuffer from an array of characters.
+     * The array is wrapped rather than copied, so it must not be modified afterwards.
+     *
+     * @param inputArray the array of characters to be managed by this buffer
+     */
+    CompactCharBuffer(char[] inputArray) {
+        this(java.nio.CharBuffer.wrap(inputArray));
+    }
+
+    /**
+     * Returns a cursor positioned before the first subsequence. A cursor reads the
+     * arrays directly, so moving it allocates nothing; it is not valid once the
+     * buffer has been changed.
+     *
+     * @return a new cursor
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Retrieves the original sequence, as given to the constructor.
+     *
+     * @return the original characters
+     */
+    CharSequence getCharacters() {
+        return this.characters;
+    }
+
+    /**
+     * Prints the original sequence followed by the details of each subsequence.
+     */
+    public void printSequenceBuffer() {
+        System.out.println("__Compact Sequence Buffer Details__");
+        System.out.println("Size of Original Sequence: " + this.characters.length());
+        System.out.println("Contents of Original Sequence:");
+        for (int i = 0; i < this.characters.length(); i++) {
+            System.out.print("[" + i + ":" + this.characters.charAt(i) + "] ");
+        }
+        System.out.println("\nNumber of SubSequences: " + getSubsequenceSize());
+        printSubSequences();
+    }
+
+    /**
+     * Reads the start index of the subsequence at a position from its array.
+     */
+    @Override
+    protected int startAt(int position) {
+        return this.starts[position];
+    }
+
+    /**
+     * Reads the end index of the subsequence at a position from its array.
+     */
+    @Override
+    protected int endAt(int position) {
+        return this.ends[position];
+    }
+
+    /**
+     * Reads the result id of the subsequence at a position from its array.
+     */
+    @Override
+    protected int resultIdAt(int position) {
+        return this.resultIds[position];
+    }
+
+    /**
+     * Checks the flags of the subsequence at a position, rather than its result id.
+     */
+    @Override
+    protected boolean isProcessedAt(int position) {
+        return (this.flags[position] & PROCESSED) != 0;
+    }
+
+    /**
+     * Writes the subsequence at a position to the arrays, flagging it if it has a result.
+     */
+    @Override
+    protected void setRecord(int position, int startIndex, int endIndex, int resultId) {
+        this.starts[position] = startIndex;
+        this.ends[position] = endIndex;
+        this.resultIds[position] = resultId;
+        this.flags[position] = resultId < 0 ? 0 : PROCESSED;
+    }
+
+    /**
+     * Gets the length of the arrays.
+     */
+    @Override
+    protected int recordCapacity() {
+        return this.starts.length;
+    }
+
+    /**
+     * Copies the arrays into longer ones.
+     */
+    @Override
+    protected void growRecords(int capacity) {
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.resultIds = Arrays.copyOf(this.resultIds, capacity);
+        this.flags = Arrays.copyOf(this.flags, capacity);
+    }
+
+    /**
+     * Shifts a run of subsequences with one {@link System#arraycopy} per array.
+     */
+    @Override
+    protected void moveRecords(int from, int to, int length) {
+        System.arraycopy(this.starts, from, this.starts, to, length);
+        System.arraycopy(this.ends, from, this.ends, to, length);
+        System.arraycopy(this.resultIds, from, this.resultIds, to, length);
+        System.arraycopy(this.flags, from, this.flags, to, length);
+    }
+
+    /**
+     * Allocates the arrays a batch is merged into.
+     */
+    @Override
+    protected void beginMerge(int capacity) {
+        this.mergedStarts = new int[capacity];
+        this.mergedEnds = new int[capacity];
+        this.mergedResultIds = new int[capacity];
+        this.mergedFlags = new byte[capacity];
+    }
+
+    /**
+     * Writes a subsequence to the arrays a batch is merged into.
+     */
+    @Override
+    protected void setMergedRecord(int position, int startIndex, int endIndex, int resultId) {
+        this.mergedStarts[position] = startIndex;
+        this.mergedEnds[position] = endIndex;
+        this.mergedResultIds[position] = resultId;
+        this.mergedFlags[position] = resultId < 0 ? 0 : PROCESSED;
+    }
+
+    /**
+     * Makes the merged arrays those of the buffer, leaving the old ones to the collector.
+     */
+    @Override
+    protected void finishMerge() {
+        this.starts = this.mergedStarts;
+        this.ends = this.mergedEnds;
+        this.resultIds = this.mergedResultIds;
+        this.flags = this.mergedFlags;
+        this.mergedStarts = null;
+        this.mergedEnds = null;
+        this.mergedResultIds = null;
+        this.mergedFlags = null;
+    }
+
+    /**
+     * A flyweight view of one subsequence at a time. The cursor holds only a position
+     * and reads every field from the buffer's arrays.
+     */
+    class Cursor {
+
+        private int position = -1; // Position of the current subsequence, -1 before the first
+
+        /**
+         * Moves to the next subsequence.
+         *
+         * @return true if there is a next subsequence, false once past the last one
+         */
+        public boolean next() {
+            if (this.position < getSubsequenceSize()) {
+                this.position++;
+            }
+            return this.position < getSubsequenceSize();
+        }
+
+        /**
+         * Moves to the next unprocessed subsequence.
+         *
+         * @return true if there is one, false once past the last subsequence
+         */
+        public boolean nextUnprocessed() {
+            while (next()) {
+                if (!isProcessedAt(this.position)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Moves to the subsequence containing an index of the sequence.
+         *
+         * @param index the index within the original sequence
+         * @return true if the index is within the sequence
+         */
+        public boolean seek(int index) {
+            int found = positionOf(index);
+            this.position = found < 0 ? getSubsequenceSize() : found;
+            return found >= 0;
+        }
+
+        /**
+         * Moves back to before the first subsequence.
+         */
+        public void reset() {
+            this.position = -1;
+        }
+
+        /**
+         * Gets the position of the current subsequence, from 0.
+         *
+         * @return the position
+         */
+        public int position() {
+            return this.position;
+        }
+
+        /**
+         * Gets the start index of the current subsequence.
+         *
+         * @return the start index
+         */
+        public int start() {
+            check();
+            return starts[this.position];
+        }
+
+        /**
+         * Gets the end index of the current subsequence.
+         *
+         * @return the end index
+         */
+        public int end() {
+            check();
+            return ends[this.position];
+        }
+
+        /**
+         * Checks if the current subsequence has a result.
+         *
+         * @return true if it is processed
+         */
+        public boolean isProcessed() {
+            check();
+            return isProcessedAt(this.position);
+        }
+
+        /**
+         * Gets the result of the current subsequence.
+         *
+         * @return the result, or an empty string if it is unprocessed
+         */
+        public String result() {
+            check();
+            return resultAt(this.position);
+        }
+
+        /**
+         * Returns the characters of the current subsequence without copying them.
+         *
+         * @return a view of the characters
+         */
+        public CharSequence content() {
+            check();
+            return new CharSequenceView(
+                characters, starts[this.position], ends[this.position] - starts[this.position] + 1
+            );
+        }
+
+        /**
+         * Ensures the cursor is on a subsequence.
+         */
+        private void check() {
+            if (this.position < 0 || this.position >= getSubsequenceSize()) {
+                throw new IllegalStateException("The cursor is not on a subsequence.");
+            }
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package src;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe {@link SequenceBuffer} that lets many worker threads translate
+ * disjoint unprocessed subsequences of a wrapped buffer at the same time.
+ * Workers {@link #claimUnprocessed() claim} an unprocessed subsequence, translate it
+ * and {@link #commit(SubSequence, String) commit} the result. Claims and commits share
+ * a read lock and only touch lock-free queues and a concurrent map, so workers do not
+ * exclude each other. Committed results are merged into the wrapped buffer in one batch
+ * the next time the buffer is read, or before its structure is changed.
+ * Reads share the read lock with the workers and take a second lock that only readers
+ * take, since reading updates the wrapped buffer's caches; polling for progress
+ * therefore never blocks claims and commits. Only structural changes take the write lock.
+ * The wrapped buffer must not be used directly once it has been wrapped.
+ */
+class ConcurrentSequenceBuffer implements SequenceBuffer {
+
+    private final SequenceBuffer buffer; // Wrapped buffer, changed under the write lock or by one reader at a time
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reading = new ReentrantLock(); // Held by one reader of the wrapped buffer at a time
+    // Unprocessed subsequences that are free to be claimed.
+    private final ConcurrentLinkedQueue<SubSequence> claimable = new ConcurrentLinkedQueue<>();
+    // Claimed subsequences, mapped to "" until a result is committed for them.
+    private final ConcurrentHashMap<SubSequence, String> claimed = new ConcurrentHashMap<>();
+    // Unprocessed subsequences that have no committed result yet.
+    private final AtomicInteger uncommitted = new AtomicInteger();
+
+    /**
+     * Constructs a ConcurrentSequenceBuffer around an existing buffer,
+     * making its unprocessed subsequences available to be claimed.
+     *
+     * @param buffer the buffer to wrap
+     */
+    ConcurrentSequenceBuffer(SequenceBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The wrapped buffer must not be null.");
+        }
+        this.buffer = buffer;
+        refreshClaimable();
+    }
+
+    /**
+     * Claims an unprocessed subsequence for the calling thread. A claimed subsequence
+     * is not handed to any other thread until it is committed with an empty result.
+     *
+     * @return the claimed subsequence, or null if no subsequence is free to be claimed
+     */
+    public SubSequence claimUnprocessed() {
+        lock.readLock().lock();
+        try {
+            SubSequence subSequence;
+            while ((subSequence = claimable.poll()) != null) {
+                if (claimed.putIfAbsent(subSequence, "") == null) {
+                    return subSequence;
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Commits the result of a claimed subsequence. An empty result gives the claim up,
+     * so the subsequence can be claimed again.
+     *
+     * @param subSequence the subsequence previously returned by {@link #claimUnprocessed()}
+     * @param result the result for the whole subsequence
+     */
+    public void commit(SubSequence subSequence, String result) {
+        if (subSequence == null) {
+            throw new IllegalArgumentException("The sub-sequence must not be null.");
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("Result string cannot be null");
+        }
+        lock.readLock().lock();
+        try {
+            if (result.isEmpty()) {
+                if (claimed.remove(subSequence, "")) {
+                    claimable.add(subSequence);
+                    return;
+                }
+            } else if (claimed.replace(subSequence, "", result)) {
+                uncommitted.decrementAndGet();
+                return;
+            }
+            throw new IllegalStateException(
+                "The sub-sequence is not claimed or already has a committed result."
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if every unprocessed subsequence has a committed result.
+     * This does not take any lock.
+     *
+     * @return true if all subsequences are processed or committed, false otherwise
+     */
+    public boolean isProcessed() {
+        return uncommitted.get() == 0;
+    }
+
+    /**
+     * Gets the number of unprocessed subsequences that have no committed result.
+     * This does not take any lock.
+     *
+     * @return the number of unprocessed subsequences
+     */
+    public int getUnprocessedSubsequenceSize() {
+        return uncommitted.get();
+    }
+
+    /**
+     * Adds a subsequence to the wrapped buffer, after merging committed results.
+     * Ranges that touch a claimed subsequence are refused.
+     */
+    public void addSubSequence(int startIndex, int endIndex, String result) {
+        lock.writeLock().lock();
+        try {
+            applyCommits();
+            rejectClaimedOverlap(startIndex, endIndex);
+            buffer.addSubSequence(startIndex, endIndex, result);
+            refreshClaimable();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a subsequence to the wrapped buffer by its indices and result.
+     */
+    public void addSubSequence(SubSequence subSequence) {
+        if (subSequence == null) {
+            throw new IllegalArgumentException(
+                "The sub-sequence must not be null."
+            );
+        }
+        addSubSequence(subSequence.getStartIndex(), subSequence.getEndIndex(), subSequence.getResult());
+    }
+
+    /**
+     * Adds a batch of subsequences to the wrapped buffer, after merging committed results.
+     * The batch is refused if any range touches a claimed subsequence.
+     */
+    public void addSubSequences(Collection<SubSequence> subSequences) {
+        lock.writeLock().lock();
+        try {
+            applyCommits();
+            if (subSequences != null) {
+                for (SubSequence subSequence : subSequences) {
+                    if (subSequence != null) {
+                        rejectClaimedOverlap(subSequence.getStartIndex(), subSequence.getEndIndex());
+                    }
+                }
+            }
+            buffer.addSubSequences(subSequences);
+            refreshClaimable();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of subsequences, given as parallel arrays, to the wrapped buffer.
+     * The batch is refused if any range touches a claimed subsequence.
+     */
+    public void addSubSequences(int[] startIndices, int[] endIndices, String[] results) {
+        lock.writeLock().lock();
+        try {
+            applyCommits();
+            if (startIndices != null && endIndices != null) {
+                for (int i = 0; i < Math.min(startIndices.length, endIndices.length); i++) {
+                    rejectClaimedOverlap(startIndices[i], endIndices[i]);
+                }
+            }
+            buffer.addSubSequences(startIndices, endIndices, results);
+            refreshClaimable();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves a subsequence by its index, after merging committed results.
+     */
+    public SubSequence getSubSequenceByIndex(int index) {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.getSubSequenceByIndex(index);
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Retrieves the index of a subsequence, after merging committed results.
+     */
+    public int getSubSequenceIndex(SubSequence subSequence) {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.getSubSequenceIndex(subSequence);
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Retrieves the first unprocessed subsequence, after merging committed results.
+     * The subsequence may be claimed by a worker.
+     */
+    public SubSequence getFirstUnprocessedSubSequence() {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.getFirstUnprocessedSubSequence();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Returns an iterator over a copy of the unprocessed subsequences,
+     * so it is not affected by later claims and commits.
+     *
+     * @return an iterator over the unprocessed subsequences
+     */
+    public Iterator<SubSequence> unprocessedIterator() {
+        beginRead();
+        try {
+            applyCommits();
+            List<SubSequence> unprocessed = new ArrayList<>();
+            buffer.unprocessedIterator().forEachRemaining(unprocessed::add);
+            return unprocessed.iterator();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Retrieves the original sequence of the wrapped buffer.
+     */
+    public String[] getOriginalSequence() {
+        lock.readLock().lock();
+        try {
+            return buffer.getOriginalSequence();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Extracts the original content of a subsequence. Only the original sequence
+     * is read, so workers can call this concurrently on their claimed subsequences.
+     *
+     * @param subSequence the subsequence whose original content is extracted
+     * @return the original content covered by the subsequence
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSequence) {
+        lock.readLock().lock();
+        try {
+            return buffer.extractSubstringFromSubSequence(subSequence);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the unprocessed subsequences of the wrapped buffer, after merging committed
+     * results. Subsequences claimed by workers are still unprocessed and are searched.
+     */
+    public int searchUnprocessed(String pattern, SubStringSearch searcher, int fromIndex) {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.searchUnprocessed(pattern, searcher, fromIndex);
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Finds every match in the unprocessed subsequences of the wrapped buffer,
+     * after merging committed results.
+     */
+    public int[] searchAllUnprocessed(String pattern, SubStringSearch searcher) {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.searchAllUnprocessed(pattern, searcher);
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Converts the results of the wrapped buffer into a string, after merging committed results.
+     */
+    public String resultToString() {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.resultToString();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Writes the results of the wrapped buffer, after merging committed results.
+     */
+    public void writeResultTo(Appendable destination) throws IOException {
+        beginRead();
+        try {
+            applyCommits();
+            buffer.writeResultTo(destination);
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Gets the results of the wrapped buffer as a character sequence, after merging
+     * committed results. The sequence does not change with the buffer.
+     */
+    public CharSequence resultSequence() {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.resultSequence();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Gets the number of subsequences, after merging committed results.
+     */
+    public int getSubsequenceSize() {
+        beginRead();
+        try {
+            applyCommits();
+            return buffer.getSubsequenceSize();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Prints the subsequences of the wrapped buffer, after merging committed results.
+     */
+    public void printSubSequences() {
+        beginRead();
+        try {
+            applyCommits();
+            buffer.printSubSequences();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Prints the wrapped buffer, after merging committed results.
+     */
+    public void printSequenceBuffer() {
+        beginRead();
+        try {
+            applyCommits();
+            buffer.printSequenceBuffer();
+        } finally {
+            endRead();
+        }
+    }
+
+    /**
+     * Starts reading the wrapped buffer: takes the read lock, shared with the workers,
+     * and then the lock that keeps other readers out.
+     */
+    private void beginRead() {
+        lock.readLock().lock();
+        reading.lock();
+    }
+
+    /**
+     * Finishes reading the wrapped buffer, releasing the locks taken by {@link #beginRead()}.
+     */
+    private void endRead() {
+        reading.unlock();
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Merges every committed result into the wrapped buffer as one batch
+     * and drops the claims they settle. Must be called with the write lock held,
+     * or after {@link #beginRead()}. Workers may commit meanwhile: a committed result
+     * never changes, and the claimable subsequences are not touched by the merge,
+     * since each result covers exactly the subsequence that was claimed.
+     */
+    private void applyCommits() {
+        List<SubSequence> results = new ArrayList<>();
+        for (Map.Entry<SubSequence, String> entry : claimed.entrySet()) {
+            String result = entry.getValue();
+            if (!result.isEmpty()) {
+                SubSequence subSequence = entry.getKey();
+                results.add(new SubSequence(
+                    subSequence.getStartIndex(), subSequence.getEndIndex(), result
+                ));
+                claimed.remove(subSequence, result);
+            }
+        }
+        if (!results.isEmpty()) {
+            buffer.addSubSequences(results);
+        }
+    }
+
+    /**
+     * Rebuilds the queue of claimable subsequences and the uncommitted count
+     * after the wrapped buffer has changed. Must be called with the write lock held,
+     * after {@link #applyCommits()}.
+     */
+    private void refreshClaimable() {
+        claimable.clear();
+        Iterator<SubSequence> unprocessed = buffer.unprocessedIterator();
+        while (unprocessed.hasNext()) {
+            SubSequence subSequence = unprocessed.next();
+            if (!claimed.containsKey(subSequence)) {
+                claimable.add(subSequence);
+            }
+        }
+        uncommitted.set(buffer.getUnprocessedSubsequenceSize());
+    }
+
+    /**
+     * Refuses a structural change that would split or replace a subsequence
+     * another thread is working on. Must be called with the write lock held.
+     */
+    private void rejectClaimedOverlap(int startIndex, int endIndex) {
+        for (SubSequence subSequence : claimed.keySet()) {
+            if (startIndex <= subSequence.getEndIndex() && endIndex >= subSequence.getStartIndex()) {
+                throw new IllegalStateException(
+                    String.format("Sub-sequence [%d:%d] is claimed by a worker",
+                    subSequence.getStartIndex(), subSequence.getEndIndex())
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A character {@link SequenceBuffer} whose original sequence can be edited in place,
+ * for a buffer kept behind a text editor. Characters are held in a gap buffer, so a run
+ * of edits at one place moves no characters apart from those typed. An edit turns only
+ * the subsequences it touches back into a single unprocessed subsequence, together with
+ * any unprocessed neighbours, so the work of translating again is bounded by the edit
+ * rather than by the document. Processed subsequences on either side keep their results.
+ * The subsequences after an edit move by the length it added or removed. Rather than
+ * re-indexing them on every keystroke, the move is recorded as an offset from the first
+ * of them: until it is applied their index keys, and the indices they report, are short
+ * by the offset. Further edits just before that subsequence add to the same offset, so a
+ * burst of typing costs O(log n) per edit, and the offset is applied, in one pass over the
+ * moved subsequences, only when the subsequences are next read or added to, or an edit
+ * lands elsewhere. Results can be assembled without applying it, as their order is unchanged.
+ * Results are concatenated with a hyphen "-", as in {@link CharBuffer}.
+ * Edited buffers cannot be forked, since forks share their original sequence.
+ */
+class EditableCharBuffer extends AbstractSequenceBuffer<Character> {
+
+    private static final int MIN_GAP = 16; // Smallest gap left after the text grows
+
+    private char[] text; // Characters before the gap, then the gap, then the characters after it
+    private int gapStart; // Index of the first unused slot, and of the character after the gap
+    private int gapEnd; // Slot of the first character after the gap
+    private final CharSequence characters = new GapText(); // The text as a character sequence
+    private int shiftFrom = -1; // Index key of the first subsequence not yet moved, -1 if none
+    private int shiftDelta; // Offset to add to the indices of the subsequences not yet moved
+
+    /**
+     * Constructs an EditableCharBuffer holding a copy of the input, with an initial
+     * subsequence spanning it. An empty input gives an empty buffer, which can be typed into.
+     *
+     * @param input the initial text
+     */
+    EditableCharBuffer(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input sequence cannot be null.");
+        }
+        int length = input.length();
+        this.text = new char[length + MIN_GAP];
+        for (int i = 0; i < length; i++) {
+            this.text[i] = input.charAt(i);
+        }
+        this.gapStart = length;
+        this.gapEnd = this.text.length;
+        this.subSequences = new TreeMap<>();
+        if (length > 0) {
+            this.addSubSequence(0, length - 1, "");
+        }
+    }
+
+    /**
+     * Inserts text before the character at an index. A subsequence the index falls inside
+     * becomes unprocessed again, and the inserted characters join it, or the unprocessed
+     * subsequences on either side; between two processed subsequences they form a new one.
+     *
+     * @param index the index the first inserted character will have, from 0 to the length
+     * @param inserted the characters to insert
+     */
+    public void insert(int index, CharSequence inserted) {
+        if (inserted == null) {
+            throw new IllegalArgumentException("Inserted text cannot be null.");
+        }
+        if (index < 0 || index > length()) {
+            throw new IndexOutOfBoundsException(
+                String.format("Index %d is out of bounds [0, %d]", index, length())
+            );
+        }
+        edit(index, 0, inserted);
+    }
+
+    /**
+     * Deletes the characters from a start index to an end index, inclusive. Every subsequence
+     * the range overlaps becomes part of one unprocessed subsequence covering what remains of
+     * them, unless nothing remains; subsequences wholly inside the range are removed.
+     *
+     * @param startIndex the index of the first character to delete
+     * @param endIndex the index of the last character to delete
+     */
+    public void delete(int startIndex, int endIndex) {
+        if (startIndex < 0 || endIndex < startIndex || endIndex >= length()) {
+            throw new IndexOutOfBoundsException(
+                String.format("Range [%d, %d] is out of bounds [0, %d]", startIndex, endIndex, length() - 1)
+            );
+        }
+        edit(startIndex, endIndex - startIndex + 1, "");
+    }
+
+    /**
+     * Replaces the characters from a start index to an end index, inclusive, with new text,
+     * as a deletion followed by an insertion at the start index would, but in a single edit.
+     *
+     * @param startIndex the index of the first character to replace
+     * @param endIndex the index of the last character to replace
+     * @param replacement the characters to insert in their place
+     */
+    public void replace(int startIndex, int endIndex, CharSequence replacement) {
+        if (replacement == null) {
+            throw new IllegalArgumentException("Replacement text cannot be null.");
+        }
+        if (startIndex < 0 || endIndex < startIndex || endIndex >= length()) {
+            throw new IndexOutOfBoundsException(
+                String.format("Range [%d, %d] is out of bounds [0, %d]", startIndex, endIndex, length() - 1)
+            );
+        }
+        edit(startIndex, endIndex - startIndex + 1, replacement);
+    }
+
+    /**
+     * Retrieves the current text. The sequence reads through to the buffer, so it
+     * reflects later edits; it must not be used while the buffer is being edited.
+     *
+     * @return the text as a character sequence
+     */
+    CharSequence getCharacters() {
+        return this.characters;
+    }
+
+    /**
+     * Applies an edit to the subsequences and then to the text. The subsequences the edit
+     * touches are found among those already moved, applying a pending offset first only if
+     * the edit reaches the subsequences it covers.
+     *
+     * @param startIndex the index of the first character removed, or of the insertion point
+     * @param removed the number of characters removed
+     * @param inserted the characters inserted at the start index
+     */
+    private void edit(int startIndex, int removed, CharSequence inserted) {
+        int delta = inserted.length() - removed;
+        if (removed == 0 && delta == 0) {
+            return;
+        }
+        int lastRemoved = startIndex + removed - 1; // startIndex - 1 for a pure insertion
+        int unmoved = unmovedStart();
+        if (lastRemoved >= unmoved) {
+            applyPendingShift(); // The edit reaches subsequences that have not been moved
+            unmoved = Integer.MAX_VALUE;
+        }
+
+        // Widen the edit to the subsequences it falls inside, then to unprocessed neighbours
+        int from = startIndex;
+        int to = lastRemoved;
+        if (startIndex > 0) {
+            SubSequence before = movedSubSequenceAt(startIndex - 1);
+            if (before.getEndIndex() >= startIndex) {
+                from = before.getStartIndex();
+                to = Math.max(to, before.getEndIndex());
+            }
+        }
+        if (lastRemoved + 1 < Math.min(length(), unmoved)) {
+            SubSequence after = movedSubSequenceAt(lastRemoved + 1);
+            if (after.getStartIndex() <= lastRemoved) {
+                to = Math.max(to, after.getEndIndex());
+            }
+        }
+        if (from > 0 && !movedSubSequenceAt(from - 1).isProcessed()) {
+            from = movedSubSequenceAt(from - 1).getStartIndex();
+        }
+        if (to + 1 == unmoved && !this.subSequences.get(this.shiftFrom).isProcessed()) {
+            applyPendingShift(); // The unprocessed neighbour has not been moved
+            unmoved = Integer.MAX_VALUE;
+        }
+        if (to + 1 < Math.min(length(), unmoved) && !movedSubSequenceAt(to + 1).isProcessed()) {
+            to = movedSubSequenceAt(to + 1).getEndIndex();
+        }
+
+        List<SubSequence> touched = new ArrayList<>();
+        if (from <= Math.min(to, unmovedKeyLimit())) {
+            touched.addAll(this.subSequences.subMap(from, true, Math.min(to, unmovedKeyLimit()), true).values());
+        }
+        for (SubSequence subSequence : touched) {
+            unindexSubSequence(subSequence);
+        }
+        recordShift(to, delta);
+        replaceText(startIndex, removed, inserted);
+
+        if (from <= to + delta) {
+            if (this.shiftFrom >= 0 && from >= this.shiftFrom) {
+                applyPendingShift(); // The new key would collide with a key not yet moved
+            }
+            indexSubSequence(new SubSequence(from, to + delta, ""));
+        }
+    }
+
+    /**
+     * Records that the subsequences after an index move by an offset. If the first of
+     * them is the one a pending offset starts from, the offsets are added together;
+     * otherwise the pending offset is applied and a new one starts from that subsequence.
+     *
+     * @param lastEdited the last index, before the edit, of the subsequences it touched
+     * @param delta the number of characters the edit added, negative if it removed more
+     */
+    private void recordShift(int lastEdited, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (lastEdited + 1 == unmovedStart()) {
+            this.shiftDelta += delta;
+            if (this.shiftDelta == 0) {
+                this.shiftFrom = -1; // The edits cancelled out
+            }
+            return;
+        }
+        Map.Entry<Integer, SubSequence> next = this.subSequences.higherEntry(lastEdited);
+        if (next == null) {
+            return; // Nothing follows the edit
+        }
+        applyPendingShift();
+        this.shiftFrom = next.getKey();
+        this.shiftDelta = delta;
+    }
+
+    /**
+     * Moves the subsequences covered by the pending offset to their indices,
+     * re-indexing each of them once.
+     */
+    private void applyPendingShift() {
+        if (this.shiftFrom < 0) {
+            return;
+        }
+        List<SubSequence> moved = new ArrayList<>(this.subSequences.tailMap(this.shiftFrom, true).values());
+        for (SubSequence subSequence : moved) {
+            unindexSubSequence(subSequence);
+        }
+        for (SubSequence subSequence : moved) {
+            subSequence.setStartIndex(subSequence.getStartIndex() + this.shiftDelta);
+            subSequence.setEndIndex(subSequence.getEndIndex() + this.shiftDelta);
+            indexSubSequence(subSequence);
+        }
+        this.shiftFrom = -1;
+        this.shiftDelta = 0;
+    }
+
+    /**
+     * Finds the subsequence containing an index that lies before the subsequences
+     * the pending offset covers.
+     *
+     * @param index an index of the text
+     * @return the subsequence containing the index
+     */
+    private SubSequence movedSubSequenceAt(int index) {
+        return this.subSequences.floorEntry(Math.min(index, unmovedKeyLimit())).getValue();
+    }
+
+    /**
+     * Gets the index at which the first subsequence not yet moved now starts.
+     *
+     * @return the index, or Integer.MAX_VALUE if there is no pending offset
+     */
+    private int unmovedStart() {
+        return this.shiftFrom >= 0 ? this.shiftFrom + this.shiftDelta : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gets the largest index key that can belong to a subsequence already moved.
+     */
+    private int unmovedKeyLimit() {
+        return this.shiftFrom >= 0 ? this.shiftFrom - 1 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Replaces characters of the text, moving the gap to the edit and growing the array
+     * if the gap is too small for the inserted characters.
+     */
+    private void replaceText(int startIndex, int removed, CharSequence inserted) {
+        moveGap(startIndex);
+        this.gapEnd += removed;
+        int added = inserted.length();
+        if (added > this.gapEnd - this.gapStart) {
+            int afterGap = this.text.length - this.gapEnd;
+            char[] grown = new char[Math.max(this.text.length * 2, length() + added + MIN_GAP)];
+            System.arraycopy(this.text, 0, grown, 0, this.gapStart);
+            System.arraycopy(this.text, this.gapEnd, grown, grown.length - afterGap, afterGap);
+            this.gapEnd = grown.length - afterGap;
+            this.text = grown;
+        }
+        for (int i = 0; i < added; i++) {
+            this.text[this.gapStart++] = inserted.charAt(i);
+        }
+    }
+
+    /**
+     * Moves the gap so that it starts at an index of the text, copying only
+     * the characters between its old and new positions.
+     */
+    private void moveGap(int index) {
+        if (index < this.gapStart) {
+            int moved = this.gapStart - index;
+            System.arraycopy(this.text, index, this.text, this.gapEnd - moved, moved);
+            this.gapStart = index;
+            this.gapEnd -= moved;
+        } else if (index > this.gapStart) {
+            int moved = index - this.gapStart;
+            System.arraycopy(this.text, this.gapEnd, this.text, this.gapStart, moved);
+            this.gapStart = index;
+            this.gapEnd += moved;
+        }
+    }
+
+    /**
+     * Gets the number of characters in the text.
+     */
+    private int length() {
+        return this.text.length - (this.gapEnd - this.gapStart);
+    }
+
+    /**
+     * Adds a subsequence, once the pending offset has been applied.
+     *
+     * @param startIndex the starting index of the new subsequence
+     * @param endIndex the ending index of the new subsequence
+     * @param result the result associated with this subsequence
+     */
+    @Override
+    public void addSubSequence(int startIndex, int endIndex, String result) {
+        applyPendingShift();
+        super.addSubSequence(startIndex, endIndex, result);
+    }
+
+    /**
+     * Adds a batch of subsequences, once the pending offset has been applied.
+     *
+     * @param batch the subsequences to add
+     */
+    @Override
+    public void addSubSequences(Collection<SubSequence> batch) {
+        applyPendingShift();
+        super.addSubSequences(batch);
+    }
+
+    /**
+     * Retrieves a subsequence by its position, once the pending offset has been applied.
+     *
+     * @param index the position of the subsequence, from 0
+     * @return the subsequence at that position
+     */
+    @Override
+    public SubSequence getSubSequenceByIndex(int index) {
+        applyPendingShift();
+        return super.getSubSequenceByIndex(index);
+    }
+
+    /**
+     * Finds the position of a subsequence, once the pending offset has been applied.
+     *
+     * @param subSequence the subsequence to find
+     * @return its position, or -1 if it is not held by this buffer
+     */
+    @Override
+    public int getSubSequenceIndex(SubSequence subSequence) {
+        applyPendingShift();
+        return super.getSubSequenceIndex(subSequence);
+    }
+
+    /**
+     * Retrieves the first unprocessed subsequence, once the pending offset has been applied.
+     *
+     * @return the first unprocessed subsequence, or null if there is none
+     */
+    @Override
+    public SubSequence getFirstUnprocessedSubSequence() {
+        applyPendingShift();
+        return super.getFirstUnprocessedSubSequence();
+    }
+
+    /**
+     * Iterates over the unprocessed subsequences, once the pending offset has been applied.
+     *
+     * @return an iterator over the unprocessed subsequences
+     */
+    @Override
+    public Iterator<SubSequence> unprocessedIterator() {
+        applyPendingShift();
+        return super.unprocessedIterator();
+    }
+
+    /**
+     * Searches the unprocessed subsequences, once the pending offset has been applied.
+     *
+     * @param pattern the pattern to find
+     * @param searcher the search algorithm to use
+     * @param fromIndex the index of the text to search from
+     * @return the index of the match, or -1 if there is none
+     */
+    @Override
+    public int searchUnprocessed(String pattern, SubStringSearch searcher, int fromIndex) {
+        applyPendingShift();
+        return super.searchUnprocessed(pattern, searcher, fromIndex);
+    }
+
+    /**
+     * Searches the text in place, through the gap.
+     *
+     * @return the text as a character sequence
+     */
+    @Override
+    protected CharSequence getSearchableCharacters() {
+        return this.characters;
+    }
+
+    /**
+     * Retrieves the number of characters in the text.
+     *
+     * @return the length of the text
+     */
+    @Override
+    protected int getOriginalSequenceLength() {
+        return length();
+    }
+
+    /**
+     * Converts a single character of the text into a string.
+     *
+     * @param index the index of the character within the text
+     * @return the character as a string
+     */
+    @Override
+    protected String getOriginalElement(int index) {
+        return String.valueOf(this.characters.charAt(index));
+    }
+
+    /**
+     * Character results are concatenated with a hyphen "-" as a delimiter.
+     *
+     * @return the result delimiter
+     */
+    @Override
+    protected String getResultDelimiter() {
+        return "-";
+    }
+
+    /**
+     * Results are not interned, since an intern table would keep the results that edits
+     * discard for as long as the buffer lives.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean internsResults() {
+        return false;
+    }
+
+    /**
+     * Extracts the characters of the text covered by a subsequence's indices.
+     *
+     * @param subSeq the subsequence from which to extract the substring
+     * @return the characters between its start and end indices
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSeq) {
+        if (subSeq == null) {
+            throw new IllegalArgumentException("SubSequence cannot be null.");
+        }
+        if (subSeq.getStartIndex() < 0 || subSeq.getEndIndex() >= length()) {
+            throw new IndexOutOfBoundsException("SubSequence indices are out of bounds.");
+        }
+        if (subSeq.getStartIndex() > subSeq.getEndIndex()) {
+            throw new IllegalArgumentException("Start index cannot be greater than end index.");
+        }
+        return this.characters.subSequence(subSeq.getStartIndex(), subSeq.getEndIndex() + 1).toString();
+    }
+
+    /**
+     * Prints the details of all subsequences in the buffer,
+     * including IDs, indices, substrings, and processing status.
+     */
+    public void printSubSequences() {
+        applyPendingShift();
+        System.out.println("_Subsequences_");
+        refreshSubSequenceIDs();
+        for (SubSequence subSeq : subSequences.values()) {
+            String output = String.format("ID: %s,Indx: [%d:%d],Str: '%s',Proc: %s,Result: '%s'",
+                                          subSeq.ID, subSeq.getStartIndex(), subSeq.getEndIndex(),
+                                          extractSubstringFromSubSequence(subSeq),
+                                          subSeq.isProcessed(), subSeq.getResult());
+            System.out.println(output);
+        }
+    }
+
+    /**
+     * Prints the text, the size of the gap and the details of each subsequence.
+     */
+    public void printSequenceBuffer() {
+        System.out.println("__Editable Sequence Buffer Details__");
+        System.out.println("Size of Text: " + length() + ", gap of " + (this.gapEnd - this.gapStart)
+            + " at " + this.gapStart);
+        System.out.println("Contents of Text:");
+        for (int i = 0; i < length(); i++) {
+            System.out.print("[" + i + ":" + this.characters.charAt(i) + "] ");
+        }
+        System.out.println("\nNumber of SubSequences: " + subSequences.size());
+        printSubSequences();
+    }
+
+    /**
+     * The text of the buffer as a character sequence, read around the gap.
+     */
+    private class GapText implements CharSequence {
+
+        @Override
+        public int length() {
+            return EditableCharBuffer.this.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+            }
+            return text[index < gapStart ? index : index + gapEnd - gapStart];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new CharSequenceView(this, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(length())
+                .append(text, 0, gapStart)
+                .append(text, gapEnd, text.length - gapEnd)
+                .toString();
+        }
+    }
+}
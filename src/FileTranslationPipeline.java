@@ -0,0 +1,313 @@
+package src;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Translates a text file of any size by memory-mapping it, cutting it into chunks at
+ * whitespace and translating each chunk in its own {@link CharBuffer} on a pool of
+ * worker threads. Chunk outputs are written in input order: finished chunks wait in a
+ * bounded queue until every chunk before them has been written, and no new chunk is
+ * started while the queue is full, so memory use is bounded by the chunk size and the
+ * queue length rather than by the file size.
+ * The file is mapped a window at a time. Chunks are cut at a line break if there is one
+ * in the second half of the chunk, otherwise at a space or tab; these bytes never occur
+ * inside a multi-byte character in UTF-8 or in the single-byte charsets that extend ASCII,
+ * so each chunk decodes on its own; other charsets are rejected.
+ * A chunk's output is its buffer's {@link CharBuffer#writeResultTo}, and consecutive chunk
+ * outputs are separated by the buffer's result delimiter, so the translation is the same
+ * whatever the chunk size, as long as no subsequence would have spanned a cut.
+ */
+class FileTranslationPipeline {
+
+    private static final long MAX_WINDOW_BYTES = 1L << 30; // Largest region of the file mapped at once
+
+    private final Consumer<CharBuffer> translator; // Adds the subsequences and results of a chunk
+    private final int chunkBytes; // Largest number of bytes in a chunk
+    private final int threads; // Number of worker threads
+    private final int maxInFlight; // Largest number of chunks started but not yet written
+    private final Charset charset; // Encoding of the input and output files
+
+    /**
+     * Constructs a pipeline for UTF-8 files, keeping up to twice as many chunks
+     * in flight as there are threads.
+     *
+     * @param translator the function that translates the buffer of a chunk in place
+     * @param chunkBytes the largest number of bytes in a chunk
+     * @param threads the number of worker threads
+     */
+    FileTranslationPipeline(Consumer<CharBuffer> translator, int chunkBytes, int threads) {
+        this(translator, chunkBytes, threads, 2 * threads, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructs a pipeline.
+     *
+     * @param translator the function that translates the buffer of a chunk in place
+     * @param chunkBytes the largest number of bytes in a chunk
+     * @param threads the number of worker threads
+     * @param maxInFlight the largest number of chunks started but not yet written
+     * @param charset the encoding of the input and output files: UTF-8, or a
+     *        single-byte charset that encodes ASCII whitespace as ASCII does
+     */
+    FileTranslationPipeline(Consumer<CharBuffer> translator, int chunkBytes, int threads,
+                            int maxInFlight, Charset charset) {
+        if (translator == null || charset == null) {
+            throw new IllegalArgumentException("Translator and charset cannot be null.");
+        }
+        if (!canCutAtWhitespace(charset)) {
+            throw new IllegalArgumentException(
+                "Charset " + charset.name() + " cannot be cut into chunks at whitespace bytes."
+            );
+        }
+        if (chunkBytes <= 0 || chunkBytes > MAX_WINDOW_BYTES) {
+            throw new IllegalArgumentException("Chunk size must be between 1 byte and 1 GB.");
+        }
+        if (threads <= 0 || maxInFlight < threads) {
+            throw new IllegalArgumentException(
+                "Threads must be positive and no more than the chunks in flight."
+            );
+        }
+        this.translator = translator;
+        this.chunkBytes = chunkBytes;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+        this.charset = charset;
+    }
+
+    /**
+     * Checks that a charset encodes line breaks, spaces and tabs as the single ASCII bytes,
+     * and that those bytes never occur inside the encoding of another character. That holds
+     * for UTF-8 and for the single-byte charsets that extend ASCII, but not, for instance,
+     * for UTF-16.
+     */
+    private static boolean canCutAtWhitespace(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8)) {
+            return true;
+        }
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1) {
+            return false;
+        }
+        return Arrays.equals("\n \t".getBytes(charset), new byte[] {'\n', ' ', '\t'});
+    }
+
+    /**
+     * Translates a file into another, replacing any existing output.
+     *
+     * @param input the file to translate
+     * @param output the file the translation is written to
+     * @return the number of chunks translated
+     * @throws IOException if a file cannot be read or written, or the input cannot be decoded
+     */
+    public int translate(Path input, Path output) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output, this.charset)) {
+            return translate(input, writer);
+        }
+    }
+
+    /**
+     * Translates a file, writing the translation to a writer in input order.
+     * If a chunk fails, the chunks still in flight are cancelled and the failure is rethrown.
+     *
+     * @param input the file to translate
+     * @param output the writer the translation is written to; it is flushed but not closed
+     * @return the number of chunks translated
+     * @throws IOException if the file cannot be read, the output cannot be written,
+     *         or the input cannot be decoded
+     */
+    public int translate(Path input, Writer output) throws IOException {
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Input and output cannot be null.");
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(this.threads);
+        ArrayDeque<Future<CharBuffer>> inFlight = new ArrayDeque<>(this.maxInFlight);
+        int chunks = 0;
+        boolean written = false; // Whether a chunk output has been written, and needs a delimiter after it
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            while (windowStart < size) {
+                long windowLength = Math.min(size - windowStart, MAX_WINDOW_BYTES);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                boolean lastWindow = windowStart + windowLength == size;
+                int chunkStart = 0;
+                while (chunkStart < windowLength) {
+                    int chunkEnd = findChunkEnd(window, chunkStart, lastWindow);
+                    if (chunkEnd < 0) {
+                        break; // The rest of the window starts the next one
+                    }
+                    if (inFlight.size() == this.maxInFlight) {
+                        written |= writeChunk(await(inFlight.poll()), output, written);
+                    }
+                    MappedByteBuffer chunk = window.slice(chunkStart, chunkEnd - chunkStart);
+                    inFlight.add(workers.submit(() -> translateChunk(chunk)));
+                    chunks++;
+                    chunkStart = chunkEnd;
+                }
+                windowStart += chunkStart;
+            }
+            while (!inFlight.isEmpty()) {
+                written |= writeChunk(await(inFlight.poll()), output, written);
+            }
+            output.flush();
+            return chunks;
+        } finally {
+            for (Future<CharBuffer> pending : inFlight) {
+                pending.cancel(true);
+            }
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds where the chunk starting at an offset of the window should end.
+     *
+     * @param window the mapped region of the file
+     * @param chunkStart the offset of the chunk within the window
+     * @param lastWindow true if the window reaches the end of the file
+     * @return the offset one past the end of the chunk, or -1 if the chunk
+     *         should instead start the next window
+     */
+    private int findChunkEnd(MappedByteBuffer window, int chunkStart, boolean lastWindow) {
+        int limit = window.limit();
+        if (limit - chunkStart <= this.chunkBytes) {
+            return lastWindow || chunkStart == 0 ? limit : -1;
+        }
+        int target = chunkStart + this.chunkBytes;
+        int half = chunkStart + this.chunkBytes / 2;
+        int space = -1;
+        for (int i = target - 1; i > chunkStart; i--) {
+            byte b = window.get(i);
+            if (b == '\n' && i >= half) {
+                return i + 1;
+            }
+            if (space < 0 && (b == ' ' || b == '\t')) {
+                space = i + 1;
+            }
+            if (i < half && space >= 0) {
+                break;
+            }
+        }
+        if (space > 0) {
+            return space;
+        }
+        // No whitespace at all: cut before a byte that does not continue a UTF-8 character
+        while (this.charset.equals(StandardCharsets.UTF_8)
+               && target > chunkStart + 1 && (window.get(target) & 0xC0) == 0x80) {
+            target--;
+        }
+        return target;
+    }
+
+    /**
+     * Decodes a chunk and translates it. Runs on a worker thread.
+     *
+     * @return the translated buffer, or null if the chunk holds no characters
+     */
+    private CharBuffer translateChunk(MappedByteBuffer chunk) throws CharacterCodingException {
+        java.nio.CharBuffer text = this.charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT)
+            .decode(chunk);
+        if (text.length() == 0) {
+            return null;
+        }
+        CharBuffer buffer = new CharBuffer(text);
+        this.translator.accept(buffer);
+        return buffer;
+    }
+
+    /**
+     * Streams the results of a translated chunk to the output, after the result
+     * delimiter if an earlier chunk has been written.
+     *
+     * @return true if anything was written
+     */
+    private static boolean writeChunk(CharBuffer buffer, Writer output, boolean afterChunk) throws IOException {
+        if (buffer == null) {
+            return false;
+        }
+        if (afterChunk) {
+            output.write(buffer.getResultDelimiter());
+        }
+        buffer.writeResultTo(output);
+        return true;
+    }
+
+    /**
+     * Waits for a translated chunk, rethrowing the exception it failed with.
+     */
+    private static CharBuffer await(Future<CharBuffer> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a chunk.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Translates a file using a dictionary of rules, segmenting each chunk by longest match.
+     * The rules file holds one rule per line: the text, a tab, and its result.
+     *
+     * Usage: {@code java src.FileTranslationPipeline <rules> <input> <output> [chunkBytes] [threads]}
+     *
+     * @param args the rules file, input file, output file, and optional chunk size and thread count
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: FileTranslationPipeline <rules> <input> <output> [chunkBytes] [threads]");
+            return;
+        }
+        Map<String, String> rules = new TreeMap<>();
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            int tab = line.indexOf('\t');
+            if (tab > 0 && tab < line.length() - 1) {
+                rules.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        int chunkBytes = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 20;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        LongestMatchSegmenter segmenter = new LongestMatchSegmenter(rules);
+        FileTranslationPipeline pipeline = new FileTranslationPipeline(segmenter::segment, chunkBytes, threads);
+        long started = System.nanoTime();
+        int chunks = pipeline.translate(Paths.get(args[1]), Paths.get(args[2]));
+        System.out.printf("Translated %d chunks in %.1f ms%n", chunks, (System.nanoTime() - started) / 1e6);
+    }
+}
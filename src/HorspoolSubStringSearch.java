@@ -0,0 +1,80 @@
+package src;
+
+import java.util.Arrays;
+
+class HorspoolSubStringSearch implements SubStringSearch {
+
+    private static final int R = 256; // Characters are hashed into this many skip buckets
+
+    private Horspool compiled; // Table of the last pattern, reused while the pattern repeats
+
+    /**
+     * A pattern and its skip table, never changed once built, so a search that reads
+     * it once sees the table of its own pattern.
+     */
+    static final class Horspool {
+
+        private final String pattern;
+        private final int[] skip; // Shift for each bucket of the character under the last pattern position
+
+        /**
+         * Builds the skip table for a pattern. Characters sharing a bucket share the
+         * shortest shift of any of them.
+         */
+        Horspool(String pattern) {
+            this.pattern = pattern;
+            int M = pattern.length();
+            skip = new int[R];
+            Arrays.fill(skip, M);
+            for (int j = 0; j < M - 1; j++) {
+                skip[pattern.charAt(j) & (R - 1)] = M - 1 - j;
+            }
+        }
+
+        /**
+         * After each alignment the pattern is shifted by the distance from its last
+         * occurrence of the character under its final position, excluding that
+         * position, to its end.
+         */
+        int search(CharSequence txt, int from, int to) {
+            int M = pattern.length();
+            char last = pattern.charAt(M - 1);
+            for (int i = from; i <= to - M;) {
+                char c = txt.charAt(i + M - 1);
+                if (c == last) {
+                    int j = 0;
+                    while (j < M - 1 && pattern.charAt(j) == txt.charAt(i + j)) {
+                        j++;
+                    }
+                    if (j == M - 1) {
+                        return i;
+                    }
+                }
+                i += skip[c & (R - 1)];
+            }
+            return to;
+        }
+    }
+
+    @Override
+    public int search(String pattern, String txt) {
+        return search(pattern, txt, 0, txt.length());
+    }
+
+    /**
+     * Searches a range in place. The table is kept and reused while the same
+     * pattern is searched for; an instance may be shared between threads.
+     */
+    @Override
+    public int search(String pattern, CharSequence txt, int from, int to) {
+        if (pattern.isEmpty()) {
+            return from;
+        }
+        Horspool horspool = compiled;
+        if (horspool == null || !horspool.pattern.equals(pattern)) {
+            horspool = new Horspool(pattern);
+            compiled = horspool;
+        }
+        return horspool.search(txt, from, to);
+    }
+}
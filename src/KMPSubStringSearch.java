@@ -0,0 +1,66 @@
+package src;
+
+class KMPSubStringSearch implements SubStringSearch {
+
+    private KMP compiled; // Automaton of the last pattern, reused while the pattern repeats
+
+    class KMP {
+
+        private final String pattern;
+        private final int[][] dfa;
+
+        public int search(String txt) {
+            return search(txt, 0, txt.length());
+        }
+
+        public int search(CharSequence txt, int from, int to) {
+            int i, j, M = pattern.length();
+            for (i = from, j = 0; i < to && j < M; i++) {
+                char c = txt.charAt(i);
+                j = c < dfa.length ? dfa[c][j] : 0; // Characters outside the alphabet restart the match
+            }
+            if (j == M) {
+                return i - M;
+            }
+            return to;
+        }
+    
+        public KMP(String pattern) {
+            this.pattern = pattern;
+            int M = pattern.length();
+            int R = 256;
+            dfa = new int[R][M];
+            dfa[pattern.charAt(0)][0] = 1;
+            for (int X = 0, j = 1; j < M; j++) {
+                for (int c = 0; c < R; c++) {
+                    dfa[c][j] = dfa[c][X];
+                }
+                dfa[pattern.charAt(j)][j] = j + 1;
+                X = dfa[pattern.charAt(j)][X];
+            }
+    
+        }
+
+    }
+
+    @Override
+    public int search(String pattern, String txt) {
+        KMP kmp = new KMP(pattern);
+        int offset = kmp.search(txt);
+        return offset;
+    }
+
+    /**
+     * Searches a range in place. The automaton is kept and reused while the same
+     * pattern is searched for, as when searching range after range of a buffer.
+     */
+    @Override
+    public int search(String pattern, CharSequence txt, int from, int to) {
+        KMP kmp = compiled;
+        if (kmp == null || !kmp.pattern.equals(pattern)) {
+            kmp = new KMP(pattern);
+            compiled = kmp;
+        }
+        return kmp.search(txt, from, to);
+    }
+}
@@ -0,0 +1,209 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import src.SequenceBuffer.SubSequence;
+
+/**
+ * Segments the unprocessed text of a buffer by a dictionary of rules, each mapping
+ * a string of the original text to its result. The text is scanned once from left to
+ * right; at each position the longest rule that matches is taken and the scan jumps past
+ * it, while characters no rule matches are stepped over and stay unprocessed. All matches
+ * are then added to the buffer as a single batch.
+ * The rules are held in a compact trie: the children of every node are stored as one
+ * sorted run of labels in a shared array, with the node's run located through an offset
+ * table, and are searched by binary search. Scanning costs O(n * L log a) for a text of
+ * n characters, rules of at most L characters and at most a children per node, so it is
+ * linear in the text, rather than one substring search per rule.
+ */
+class LongestMatchSegmenter {
+
+    private final int[] edgeStart; // First edge of each node; edgeStart[node + 1] ends its run
+    private final char[] edgeLabel; // Label of each edge, sorted within the run of its node
+    private final int[] ruleOf; // Rule ending at each node, or -1
+    private final String[] results; // Result of each rule
+    private final int longestRule; // Length of the longest rule
+
+    /**
+     * Builds the trie for a dictionary of rules.
+     *
+     * @param rules the result of each string to be matched; strings and results must not be empty
+     */
+    LongestMatchSegmenter(Map<String, String> rules) {
+        if (rules == null || rules.isEmpty()) {
+            throw new IllegalArgumentException("At least one rule is required.");
+        }
+        String[] keys = new String[rules.size()];
+        int characters = 0;
+        int i = 0;
+        for (Map.Entry<String, String> rule : rules.entrySet()) {
+            if (rule.getKey() == null || rule.getKey().isEmpty()) {
+                throw new IllegalArgumentException("Rules cannot match an empty string.");
+            }
+            if (rule.getValue() == null || rule.getValue().isEmpty()) {
+                throw new IllegalArgumentException("Rule results cannot be empty: " + rule.getKey());
+            }
+            keys[i++] = rule.getKey();
+            characters += rule.getKey().length();
+        }
+        Arrays.sort(keys);
+
+        // Each edge creates one node, and nodes are numbered in the order their edges are
+        // created, so the node an edge leads to is always the edge's index plus one.
+        int[] starts = new int[characters + 2];
+        char[] labels = new char[characters];
+        int[] ruleIds = new int[characters + 1];
+        String[] ruleResults = new String[keys.length];
+        int[] lows = new int[characters + 1]; // Keys sharing each node's prefix, from lows to highs
+        int[] highs = new int[characters + 1];
+        int[] depths = new int[characters + 1];
+        highs[0] = keys.length;
+        int nodes = 1;
+        int edges = 0;
+        int longest = 0;
+        for (int node = 0; node < nodes; node++) {
+            starts[node] = edges;
+            ruleIds[node] = -1;
+            int low = lows[node];
+            int depth = depths[node];
+            if (keys[low].length() == depth) {
+                // Keys are sorted, so the key ending here comes first
+                ruleIds[node] = low;
+                ruleResults[low] = rules.get(keys[low]);
+                longest = Math.max(longest, depth);
+                low++;
+            }
+            while (low < highs[node]) {
+                char label = keys[low].charAt(depth);
+                int high = low + 1;
+                while (high < highs[node] && keys[high].charAt(depth) == label) {
+                    high++;
+                }
+                labels[edges++] = label;
+                lows[nodes] = low;
+                highs[nodes] = high;
+                depths[nodes++] = depth + 1;
+                low = high;
+            }
+        }
+        starts[nodes] = edges;
+
+        this.edgeStart = Arrays.copyOf(starts, nodes + 1);
+        this.edgeLabel = Arrays.copyOf(labels, edges);
+        this.ruleOf = Arrays.copyOf(ruleIds, nodes);
+        this.results = ruleResults;
+        this.longestRule = longest;
+    }
+
+    /**
+     * Segments the unprocessed subsequences of a CharBuffer.
+     *
+     * @param buffer the buffer to segment
+     * @return the number of subsequences added
+     */
+    public int segment(CharBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The buffer must not be null.");
+        }
+        return segment(buffer, buffer.getCharacters());
+    }
+
+    /**
+     * Segments the unprocessed subsequences of a buffer whose original sequence is the
+     * given text. Matches never cross the bounds of an unprocessed subsequence.
+     *
+     * @param buffer the buffer to segment
+     * @param text the original sequence of the buffer, one character per index
+     * @return the number of subsequences added
+     */
+    int segment(SequenceBuffer buffer, CharSequence text) {
+        if (buffer == null || text == null) {
+            throw new IllegalArgumentException("The buffer and text must not be null.");
+        }
+        List<int[]> ranges = new ArrayList<>(); // Unprocessed ranges, read before the buffer changes
+        Iterator<SubSequence> unprocessed = buffer.unprocessedIterator();
+        while (unprocessed.hasNext()) {
+            SubSequence subSequence = unprocessed.next();
+            ranges.add(new int[] {subSequence.getStartIndex(), subSequence.getEndIndex()});
+        }
+
+        int capacity = 16;
+        int[] starts = new int[capacity];
+        int[] ends = new int[capacity];
+        String[] matched = new String[capacity];
+        int count = 0;
+        for (int[] range : ranges) {
+            int position = range[0];
+            while (position <= range[1]) {
+                long match = longestMatch(text, position, range[1]);
+                if (match < 0) {
+                    position++;
+                    continue;
+                }
+                int length = (int) (match >>> 32);
+                if (count == capacity) {
+                    capacity *= 2;
+                    starts = Arrays.copyOf(starts, capacity);
+                    ends = Arrays.copyOf(ends, capacity);
+                    matched = Arrays.copyOf(matched, capacity);
+                }
+                starts[count] = position;
+                ends[count] = position + length - 1;
+                matched[count++] = this.results[(int) match];
+                position += length;
+            }
+        }
+        buffer.addSubSequences(
+            Arrays.copyOf(starts, count), Arrays.copyOf(ends, count), Arrays.copyOf(matched, count)
+        );
+        return count;
+    }
+
+    /**
+     * Finds the longest rule matching the text at a position, without reading past a limit.
+     *
+     * @param text the text to match against
+     * @param position the index the rule must start at
+     * @param limit the last index the rule may cover
+     * @return the length of the rule in the high 32 bits and its id in the low 32 bits,
+     *         or -1 if no rule matches
+     */
+    long longestMatch(CharSequence text, int position, int limit) {
+        long best = -1;
+        int node = 0;
+        int end = Math.min(limit, position + this.longestRule - 1);
+        for (int i = position; i <= end; i++) {
+            node = child(node, text.charAt(i));
+            if (node < 0) {
+                break;
+            }
+            if (this.ruleOf[node] >= 0) {
+                best = ((long) (i - position + 1) << 32) | this.ruleOf[node];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the child of a node along the edge with the given label.
+     *
+     * @return the child node, or -1 if there is no such edge
+     */
+    private int child(int node, char label) {
+        int edge = Arrays.binarySearch(this.edgeLabel, this.edgeStart[node], this.edgeStart[node + 1], label);
+        return edge < 0 ? -1 : edge + 1;
+    }
+
+    /**
+     * Gets the number of nodes in the trie, including the root.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return this.ruleOf.length;
+    }
+}
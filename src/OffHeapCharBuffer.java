@@ -0,0 +1,277 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+
+/**
+ * A character {@link SequenceBuffer} that keeps both the original sequence and its table
+ * of subsequences outside the Java heap, in {@link OffHeapStore}s. Only the results are
+ * heap objects, so a document far larger than the heap can be buffered while the
+ * garbage collector sees a handful of objects whatever its size.
+ * The text is stored as UTF-16 chars. Subsequence i is a record of three ints in the
+ * table: its start index, its end index and the id of its result, or -1 if it is
+ * unprocessed; results are interned on the heap, so it holds each distinct result once
+ * however many subsequences carry it. The table is the record table of an
+ * {@link AbstractSegmentTableBuffer}, which adds, splits and merges the records.
+ * A batch is merged into a second table of the same kind, and the two tables then swap
+ * roles, so a file-backed buffer maps two scratch files for its table however many
+ * batches it takes. The stores live in direct memory, or in scratch files in a given
+ * directory, which are deleted by {@link #close()}.
+ */
+class OffHeapCharBuffer extends AbstractSegmentTableBuffer implements Closeable {
+
+    private static final int RECORD_BYTES = 12; // Start index, end index and result id
+    private static final int START = 0; // Offsets of the fields within a record
+    private static final int END = 4;
+    private static final int RESULT = 8;
+    private static final int READ_CHUNK = 8192; // Chars read from a reader at a time
+
+    private final OffHeapStore text; // The original sequence, two bytes per char
+    private final int length; // Number of chars in the original sequence
+    private OffHeapStore table; // Records of the subsequences, sorted by start index
+    private OffHeapStore merged; // Table a batch is merged into, then the spare table; null until a batch
+
+    /**
+     * Constructs an OffHeapCharBuffer in direct memory holding a copy of the input,
+     * with an initial subsequence that spans it.
+     *
+     * @param input the characters to be managed by this buffer
+     */
+    OffHeapCharBuffer(CharSequence input) {
+        if (input == null) {
+            throw new IllegalArgumentException("Input sequence cannot be null.");
+        }
+        if (input.length() == 0) {
+            throw new IllegalArgumentException("Invalid start or end index");
+        }
+        this.text = OffHeapStore.direct();
+        this.text.ensureCapacity(2L * input.length());
+        for (int i = 0; i < input.length(); i++) {
+            this.text.putChar(2L * i, input.charAt(i));
+        }
+        this.length = input.length();
+        this.table = OffHeapStore.direct();
+        initializeTable();
+    }
+
+    /**
+     * Constructs an OffHeapCharBuffer by reading a reader to its end, with an initial
+     * subsequence that spans everything read. The characters pass through the heap a
+     * chunk at a time, so the input is never held on the heap as a whole.
+     *
+     * @param input the reader the original sequence is read from; it is not closed
+     * @param storageDirectory the directory for the scratch files, or null to use direct memory
+     * @throws IOException if the reader fails or the scratch files cannot be created
+     */
+    OffHeapCharBuffer(Reader input, Path storageDirectory) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Input reader cannot be null.");
+        }
+        this.text = storageDirectory == null ? OffHeapStore.direct() : OffHeapStore.mapped(storageDirectory);
+        try {
+            char[] chunk = new char[READ_CHUNK];
+            long read = 0;
+            for (int n = input.read(chunk); n >= 0; n = input.read(chunk)) {
+                if (read + n > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("The input is longer than the largest index.");
+                }
+                this.text.ensureCapacity(2 * (read + n));
+                for (int i = 0; i < n; i++) {
+                    this.text.putChar(2 * (read + i), chunk[i]);
+                }
+                read += n;
+            }
+            if (read == 0) {
+                throw new IllegalArgumentException("Invalid start or end index");
+            }
+            this.length = (int) read;
+            this.table = this.text.createSibling();
+        } catch (IOException | RuntimeException e) {
+            this.text.close();
+            throw e;
+        }
+        initializeTable();
+    }
+
+    /**
+     * Writes the record of the initial unprocessed subsequence.
+     */
+    private void initializeTable() {
+        this.table.ensureCapacity((long) INITIAL_RECORDS * RECORD_BYTES);
+        initializeRecords(this.length);
+    }
+
+    /**
+     * Retrieves the original sequence as a character sequence reading the stored chars in place.
+     *
+     * @return the original characters
+     */
+    CharSequence getCharacters() {
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return length;
+            }
+
+            @Override
+            public char charAt(int index) {
+                if (index < 0 || index >= length) {
+                    throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+                }
+                return text.getChar(2L * index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return new CharSequenceView(this, start, end - start);
+            }
+
+            @Override
+            public String toString() {
+                return copyChars(0, length);
+            }
+        };
+    }
+
+    /**
+     * Releases the off-heap storage, deleting any scratch files.
+     * The buffer must not be used afterwards.
+     *
+     * @throws IOException if a scratch file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.table.close();
+            if (this.merged != null) {
+                this.merged.close();
+            }
+        } finally {
+            this.text.close();
+        }
+    }
+
+    /**
+     * Prints the original sequence followed by the details of each subsequence.
+     */
+    public void printSequenceBuffer() {
+        System.out.println("__Off-Heap Sequence Buffer Details__");
+        System.out.println("Size of Original Sequence: " + this.length);
+        System.out.println("Contents of Original Sequence:");
+        for (int i = 0; i < this.length; i++) {
+            System.out.print("[" + i + ":" + this.text.getChar(2L * i) + "] ");
+        }
+        System.out.println("\nNumber of SubSequences: " + getSubsequenceSize());
+        printSubSequences();
+    }
+
+    /**
+     * Reads the start index of the record at a position.
+     */
+    @Override
+    protected int startAt(int position) {
+        return this.table.getInt((long) position * RECORD_BYTES + START);
+    }
+
+    /**
+     * Reads the end index of the record at a position.
+     */
+    @Override
+    protected int endAt(int position) {
+        return this.table.getInt((long) position * RECORD_BYTES + END);
+    }
+
+    /**
+     * Reads the result id of the record at a position.
+     */
+    @Override
+    protected int resultIdAt(int position) {
+        return this.table.getInt((long) position * RECORD_BYTES + RESULT);
+    }
+
+    /**
+     * Writes the record at a position of the table.
+     */
+    @Override
+    protected void setRecord(int position, int startIndex, int endIndex, int resultId) {
+        writeRecord(this.table, position, startIndex, endIndex, resultId);
+    }
+
+    /**
+     * Gets the number of records the table has room for.
+     */
+    @Override
+    protected int recordCapacity() {
+        return (int) Math.min(Integer.MAX_VALUE, this.table.capacity() / RECORD_BYTES);
+    }
+
+    /**
+     * Grows the table store, keeping its records.
+     */
+    @Override
+    protected void growRecords(int capacity) {
+        this.table.ensureCapacity((long) capacity * RECORD_BYTES);
+    }
+
+    /**
+     * Moves a run of records within the table store.
+     */
+    @Override
+    protected void moveRecords(int from, int to, int length) {
+        this.table.move((long) from * RECORD_BYTES, (long) to * RECORD_BYTES, (long) length * RECORD_BYTES);
+    }
+
+    /**
+     * Prepares the spare table for a merge, creating it, in the same kind of storage
+     * as the table, on the first batch.
+     */
+    @Override
+    protected void beginMerge(int capacity) {
+        if (this.merged == null) {
+            this.merged = this.table.createSibling();
+        }
+        this.merged.ensureCapacity((long) capacity * RECORD_BYTES);
+    }
+
+    /**
+     * Writes a record of the spare table.
+     */
+    @Override
+    protected void setMergedRecord(int position, int startIndex, int endIndex, int resultId) {
+        writeRecord(this.merged, position, startIndex, endIndex, resultId);
+    }
+
+    /**
+     * Swaps the tables: the merged one becomes the table, and the old table is kept
+     * as the spare for the next batch.
+     */
+    @Override
+    protected void finishMerge() {
+        OffHeapStore spare = this.table;
+        this.table = this.merged;
+        this.merged = spare;
+    }
+
+    /**
+     * Writes a record to a table.
+     */
+    private static void writeRecord(OffHeapStore table, int position, int startIndex, int endIndex, int resultId) {
+        long offset = (long) position * RECORD_BYTES;
+        table.putInt(offset + START, startIndex);
+        table.putInt(offset + END, endIndex);
+        table.putInt(offset + RESULT, resultId);
+    }
+
+    /**
+     * Copies a range of the stored chars onto the heap.
+     */
+    private String copyChars(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = this.text.getChar(2L * i);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,261 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Bytes held outside the Java heap, either in direct buffers or in a memory-mapped
+ * scratch file, and addressed by a long offset so that the store can outgrow a single
+ * {@link ByteBuffer}. The bytes are kept in pages of up to 1 GB; the last page doubles
+ * as it grows, so a small store does not reserve a whole page. Values are read and written
+ * in native byte order, and a value aligned to its own size never straddles two pages.
+ * The garbage collector only sees the few buffer objects, never the bytes they hold,
+ * so the size of the store has no bearing on collection pauses.
+ * A file-backed store can hold more than the physical memory. Its file is deleted no later
+ * than {@link #close()}, after which the store must not be used.
+ * The memory of a page, direct or mapped, is returned once the garbage collector finds
+ * the page unreachable: {@link #close()} and the growth of a page drop their references
+ * to the old pages rather than freeing them, since only internal APIs can free a buffer
+ * early. Callers that need memory back promptly should close stores they are done with.
+ */
+class OffHeapStore implements Closeable {
+
+    private static final int PAGE_SHIFT = 30;
+    private static final long PAGE_BYTES = 1L << PAGE_SHIFT; // Largest page
+    private static final int PAGE_MASK = (int) PAGE_BYTES - 1;
+    private static final int MIN_PAGE_BYTES = 4096; // Size of a newly added page
+    private static final int COPY_CHUNK = 8192; // Bytes moved at a time through the heap
+    private final Path path; // Backing file, or null for direct memory
+    private final FileChannel channel; // Channel the pages are mapped from, or null
+    private ByteBuffer[] pages = new ByteBuffer[0]; // Every page is full-size but the last
+    private long capacity; // Number of bytes that can be addressed
+    private byte[] chunk; // Scratch space for moves, allocated on the first one
+
+    /**
+     * Constructs a store over a scratch file, or in direct memory.
+     */
+    private OffHeapStore(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an empty store in direct memory.
+     *
+     * @return the store
+     */
+    static OffHeapStore direct() {
+        return new OffHeapStore(null, null);
+    }
+
+    /**
+     * Creates an empty store backed by a new scratch file in a directory.
+     *
+     * @param directory the directory the file is created in
+     * @return the store
+     * @throws IOException if the file cannot be created
+     */
+    static OffHeapStore mapped(Path directory) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("The directory must not be null.");
+        }
+        Path path = Files.createTempFile(directory, "sequence-buffer", ".store");
+        return new OffHeapStore(path, FileChannel.open(path,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE));
+    }
+
+    /**
+     * Creates an empty store of the same kind as this one: in direct memory, or
+     * backed by a new scratch file in the same directory.
+     *
+     * @return the store
+     */
+    OffHeapStore createSibling() {
+        if (this.path == null) {
+            return direct();
+        }
+        try {
+            return mapped(this.path.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of bytes that can be addressed.
+     *
+     * @return the capacity in bytes
+     */
+    long capacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Grows the store, if needed, so that a number of bytes can be addressed.
+     * Bytes already written keep their offsets.
+     *
+     * @param bytes the number of bytes required
+     */
+    void ensureCapacity(long bytes) {
+        while (this.capacity < bytes) {
+            int last = this.pages.length - 1;
+            if (last >= 0 && this.pages[last].capacity() < PAGE_BYTES) {
+                long needed = bytes - ((long) last << PAGE_SHIFT);
+                int size = (int) Math.min(PAGE_BYTES, Math.max(needed, 2L * this.pages[last].capacity()));
+                this.pages[last] = allocate(last, size);
+                this.capacity = ((long) last << PAGE_SHIFT) + size;
+            } else {
+                this.pages = Arrays.copyOf(this.pages, last + 2);
+                long needed = bytes - ((long) (last + 1) << PAGE_SHIFT);
+                int size = (int) Math.min(PAGE_BYTES, Math.max(needed, MIN_PAGE_BYTES));
+                this.pages[last + 1] = allocate(last + 1, size);
+                this.capacity = ((long) (last + 1) << PAGE_SHIFT) + size;
+            }
+        }
+    }
+
+    /**
+     * Allocates a page, or grows the last one. A direct page is copied into its
+     * replacement; a mapped page is mapped again over the same region of the file,
+     * which extends the file.
+     */
+    private ByteBuffer allocate(int page, int size) {
+        ByteBuffer allocated;
+        if (this.channel == null) {
+            allocated = ByteBuffer.allocateDirect(size);
+            ByteBuffer old = this.pages[page];
+            if (old != null) {
+                allocated.put(0, old, 0, old.capacity());
+            }
+        } else {
+            try {
+                allocated = this.channel.map(FileChannel.MapMode.READ_WRITE, (long) page << PAGE_SHIFT, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return allocated.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Reads an int at an offset aligned to four bytes.
+     *
+     * @param offset the offset of the int
+     * @return the value
+     */
+    int getInt(long offset) {
+        return this.pages[(int) (offset >>> PAGE_SHIFT)].getInt((int) offset & PAGE_MASK);
+    }
+
+    /**
+     * Writes an int at an offset aligned to four bytes.
+     *
+     * @param offset the offset of the int
+     * @param value the value to write
+     */
+    void putInt(long offset, int value) {
+        this.pages[(int) (offset >>> PAGE_SHIFT)].putInt((int) offset & PAGE_MASK, value);
+    }
+
+    /**
+     * Reads a char at an even offset.
+     *
+     * @param offset the offset of the char
+     * @return the value
+     */
+    char getChar(long offset) {
+        return this.pages[(int) (offset >>> PAGE_SHIFT)].getChar((int) offset & PAGE_MASK);
+    }
+
+    /**
+     * Writes a char at an even offset.
+     *
+     * @param offset the offset of the char
+     * @param value the value to write
+     */
+    void putChar(long offset, char value) {
+        this.pages[(int) (offset >>> PAGE_SHIFT)].putChar((int) offset & PAGE_MASK, value);
+    }
+
+    /**
+     * Copies bytes from one offset to another within the store. The ranges may overlap:
+     * they are copied in whichever direction leaves the source intact until it is read.
+     *
+     * @param from the offset of the first byte to copy
+     * @param to the offset it is copied to
+     * @param bytes the number of bytes to copy
+     */
+    void move(long from, long to, long bytes) {
+        if (bytes <= 0 || from == to) {
+            return;
+        }
+        if (this.chunk == null) {
+            this.chunk = new byte[COPY_CHUNK];
+        }
+        byte[] chunk = this.chunk;
+        long done = 0;
+        while (done < bytes) {
+            long remaining = bytes - done;
+            int length = (int) Math.min(chunk.length, remaining);
+            // Copy forwards when moving down, backwards when moving up
+            long source = from < to ? from + remaining - length : from + done;
+            long target = from < to ? to + remaining - length : to + done;
+            copyOut(source, chunk, length);
+            copyIn(target, chunk, length);
+            done += length;
+        }
+    }
+
+    /**
+     * Reads bytes into an array, across pages if needed.
+     */
+    private void copyOut(long offset, byte[] destination, int length) {
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            int inPage = (int) position & PAGE_MASK;
+            ByteBuffer page = this.pages[(int) (position >>> PAGE_SHIFT)];
+            int run = Math.min(length - copied, page.capacity() - inPage);
+            page.get(inPage, destination, copied, run);
+            copied += run;
+        }
+    }
+
+    /**
+     * Writes bytes from an array, across pages if needed.
+     */
+    private void copyIn(long offset, byte[] source, int length) {
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            int inPage = (int) position & PAGE_MASK;
+            ByteBuffer page = this.pages[(int) (position >>> PAGE_SHIFT)];
+            int run = Math.min(length - copied, page.capacity() - inPage);
+            page.put(inPage, source, copied, run);
+            copied += run;
+        }
+    }
+
+    /**
+     * Releases the store. The pages are dropped, to be freed or unmapped once the garbage
+     * collector finds them unreachable; a backing file is closed and deleted.
+     *
+     * @throws IOException if the backing file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.pages = new ByteBuffer[0];
+        this.capacity = 0;
+        if (this.channel != null) {
+            this.channel.close();
+        }
+    }
+}
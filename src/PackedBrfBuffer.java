@@ -0,0 +1,385 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Conversions between braille cells packed as dot masks, Unicode braille patterns
+ * and Braille ASCII, the character set of BRF files.
+ * A dot mask holds dot n in bit n - 1, so dots 1 to 6 fit in the low six bits and
+ * 8-dot cells use all eight. The Unicode braille pattern of a cell is U+2800 plus its mask.
+ * Braille ASCII covers the 64 six-dot cells; lower-case letters are read as upper case.
+ */
+final class BrailleCells {
+
+    static final char UNICODE_BLOCK = '\u2800'; // Braille pattern with no dots raised
+    // Braille ASCII character of each six-dot mask.
+    private static final String BRF_ASCII =
+        " A1B'K2L@CIF/MSP\"E3H9O6R^DJG>NTQ,*5<-U8V.%[$+X!&;:4\\0Z7(_?W]#Y)=";
+    private static final byte[] BRF_TO_MASK = new byte[128]; // Mask of each ASCII character, -1 if none
+
+    static {
+        Arrays.fill(BRF_TO_MASK, (byte) -1);
+        for (int mask = 0; mask < BRF_ASCII.length(); mask++) {
+            char c = BRF_ASCII.charAt(mask);
+            BRF_TO_MASK[c] = (byte) mask;
+            if (c >= 'A' && c <= 'Z') {
+                BRF_TO_MASK[Character.toLowerCase(c)] = (byte) mask;
+            }
+        }
+    }
+
+    private BrailleCells() {
+    }
+
+    /**
+     * Converts a dot mask to its Unicode braille pattern.
+     *
+     * @param mask the dot mask
+     * @return the braille pattern character
+     */
+    static char toUnicode(byte mask) {
+        return (char) (UNICODE_BLOCK + (mask & 0xFF));
+    }
+
+    /**
+     * Converts a Unicode braille pattern to its dot mask.
+     *
+     * @param pattern a character in the range U+2800 to U+28FF
+     * @return the dot mask
+     */
+    static byte fromUnicode(char pattern) {
+        if (pattern < UNICODE_BLOCK || pattern > UNICODE_BLOCK + 0xFF) {
+            throw new IllegalArgumentException(
+                String.format("U+%04X is not a braille pattern", (int) pattern)
+            );
+        }
+        return (byte) (pattern - UNICODE_BLOCK);
+    }
+
+    /**
+     * Converts a six-dot mask to its Braille ASCII character.
+     *
+     * @param mask the dot mask, without dots 7 or 8
+     * @return the Braille ASCII character
+     */
+    static char toBrf(byte mask) {
+        if ((mask & 0xC0) != 0) {
+            throw new IllegalArgumentException(
+                "Cell " + toUnicode(mask) + " uses dots 7 or 8, which Braille ASCII cannot hold"
+            );
+        }
+        return BRF_ASCII.charAt(mask);
+    }
+
+    /**
+     * Converts a Braille ASCII character to its dot mask.
+     *
+     * @param c a Braille ASCII character, in either case
+     * @return the dot mask
+     */
+    static byte fromBrf(char c) {
+        byte mask = c < BRF_TO_MASK.length ? BRF_TO_MASK[c] : -1;
+        if (mask < 0) {
+            throw new IllegalArgumentException(
+                String.format("'%s' (U+%04X) is not a Braille ASCII character", c, (int) c)
+            );
+        }
+        return mask;
+    }
+
+    /**
+     * Converts a character of a result to the byte written to a BRF file.
+     * Braille patterns and Braille ASCII are converted to upper-case Braille ASCII;
+     * line and page breaks are passed through.
+     *
+     * @param c the character to convert
+     * @return the BRF byte
+     */
+    static byte toBrfByte(char c) {
+        if (c == '\n' || c == '\r' || c == '\f') {
+            return (byte) c;
+        }
+        if (c >= UNICODE_BLOCK && c <= UNICODE_BLOCK + 0xFF) {
+            return (byte) toBrf(fromUnicode(c));
+        }
+        return (byte) toBrf(fromBrf(c));
+    }
+}
+
+/**
+ * A braille {@link SequenceBuffer} whose original sequence holds one byte per cell:
+ * the cell's dot mask, as described in {@link BrailleCells}. Compared with a
+ * {@link BrfBuffer}, which keeps every cell as characters plus an offset, a cell
+ * costs a single byte, and the cells can live in a direct or memory-mapped
+ * {@link ByteBuffer}. Cells are extracted as Unicode braille patterns; each cell is
+ * one character, so no delimiter is needed between them.
+ * Results are braille, given as Unicode braille patterns or Braille ASCII, and
+ * {@link #writeBrfTo(WritableByteChannel)} encodes them straight into BRF bytes on a
+ * channel, such as an embosser port or a file, without building a string.
+ */
+class PackedBrfBuffer extends AbstractSequenceBuffer<String> {
+
+    private static final int OUTPUT_BUFFER_BYTES = 8192; // Size of the buffer BRF output is staged in
+
+    private final ByteBuffer cells; // Dot mask of each cell, read with absolute gets only
+
+    /**
+     * Constructs a PackedBrfBuffer over dot masks, setting up an initial
+     * subsequence that spans every cell. The array is wrapped rather than copied.
+     *
+     * @param dotMasks the dot mask of each cell
+     */
+    PackedBrfBuffer(byte[] dotMasks) {
+        this(ByteBuffer.wrap(dotMasks));
+    }
+
+    /**
+     * Constructs a PackedBrfBuffer over the remaining bytes of a buffer of dot masks,
+     * which may be direct or memory-mapped. The bytes are used in place, so they
+     * must not be modified afterwards.
+     *
+     * @param dotMasks the dot mask of each cell, from its position to its limit
+     */
+    PackedBrfBuffer(ByteBuffer dotMasks) {
+        if (dotMasks == null) {
+            throw new IllegalArgumentException("Input cells cannot be null.");
+        }
+        this.cells = dotMasks.slice();
+        this.subSequences = new TreeMap<>();
+        this.addSubSequence(0, this.cells.limit() - 1, "");
+    }
+
+    /**
+     * Constructs an empty PackedBrfBuffer over the cells of another, for a fork.
+     */
+    private PackedBrfBuffer(PackedBrfBuffer source) {
+        this.cells = source.cells;
+    }
+
+    /**
+     * Packs Braille ASCII text, such as the contents of a BRF file, into a buffer.
+     *
+     * @param brf the cells as Braille ASCII, in either case
+     * @return the buffer holding the cells
+     */
+    static PackedBrfBuffer fromBrf(CharSequence brf) {
+        byte[] masks = new byte[brf.length()];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = BrailleCells.fromBrf(brf.charAt(i));
+        }
+        return new PackedBrfBuffer(masks);
+    }
+
+    /**
+     * Packs Unicode braille patterns into a buffer.
+     *
+     * @param braille the cells as characters from U+2800 to U+28FF
+     * @return the buffer holding the cells
+     */
+    static PackedBrfBuffer fromUnicode(CharSequence braille) {
+        byte[] masks = new byte[braille.length()];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = BrailleCells.fromUnicode(braille.charAt(i));
+        }
+        return new PackedBrfBuffer(masks);
+    }
+
+    /**
+     * Creates an empty PackedBrfBuffer sharing this buffer's cells.
+     *
+     * @return the branch to fork into
+     */
+    @Override
+    protected AbstractSequenceBuffer<String> createBranch() {
+        return new PackedBrfBuffer(this);
+    }
+
+    /**
+     * Retrieves the cells, which identify the buffers forked from one another.
+     *
+     * @return the cell storage
+     */
+    @Override
+    protected Object getOriginalStorage() {
+        return this.cells;
+    }
+
+    /**
+     * Retrieves the dot mask of a cell.
+     *
+     * @param index the index of the cell
+     * @return its dot mask
+     */
+    byte getDotMask(int index) {
+        return this.cells.get(index);
+    }
+
+    /**
+     * Retrieves the number of cells.
+     *
+     * @return the length of the original sequence
+     */
+    @Override
+    protected int getOriginalSequenceLength() {
+        return this.cells.limit();
+    }
+
+    /**
+     * Converts a single cell to its Unicode braille pattern.
+     *
+     * @param index the index of the cell
+     * @return the braille pattern as a string
+     */
+    @Override
+    protected String getOriginalElement(int index) {
+        return String.valueOf(BrailleCells.toUnicode(this.cells.get(index)));
+    }
+
+    /**
+     * Searches the cells in place as Unicode braille patterns, one per cell.
+     *
+     * @return the cells as a character sequence
+     */
+    @Override
+    protected CharSequence getSearchableCharacters() {
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return cells.limit();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return BrailleCells.toUnicode(cells.get(index));
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return new CharSequenceView(this, start, end - start);
+            }
+
+            @Override
+            public String toString() {
+                return extractSubstringFromSubSequence(new SubSequence(0, cells.limit() - 1, ""));
+            }
+        };
+    }
+
+    /**
+     * Extracts the cells covered by a subsequence as Unicode braille patterns.
+     *
+     * @param subSeq the subsequence from which to extract the cells
+     * @return one braille pattern per cell
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSeq) {
+        validateSubSequence(subSeq);
+        char[] patterns = new char[subSeq.getLength() + 1];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = BrailleCells.toUnicode(this.cells.get(subSeq.getStartIndex() + i));
+        }
+        return new String(patterns);
+    }
+
+    /**
+     * Writes the document as BRF bytes: the result of each processed subsequence,
+     * and the original cells of each unprocessed one, so a partly translated document
+     * can still be embossed. The bytes are staged in one reused direct buffer and
+     * written to the channel as it fills, so no strings are built.
+     *
+     * @param channel the channel the BRF bytes are written to
+     * @return the number of bytes written
+     * @throws IOException if the channel cannot be written to
+     * @throws IllegalArgumentException if a result or cell cannot be expressed in Braille ASCII
+     */
+    public long writeBrfTo(WritableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("The channel must not be null.");
+        }
+        ByteBuffer out = ByteBuffer.allocateDirect(OUTPUT_BUFFER_BYTES);
+        long written = 0;
+        for (SubSequence subSequence : this.subSequences.values()) {
+            if (subSequence.isProcessed()) {
+                String result = subSequence.getResult();
+                for (int i = 0; i < result.length(); i++) {
+                    if (!out.hasRemaining()) {
+                        written += drain(out, channel);
+                    }
+                    out.put(BrailleCells.toBrfByte(result.charAt(i)));
+                }
+            } else {
+                for (int i = subSequence.getStartIndex(); i <= subSequence.getEndIndex(); i++) {
+                    if (!out.hasRemaining()) {
+                        written += drain(out, channel);
+                    }
+                    out.put((byte) BrailleCells.toBrf(this.cells.get(i)));
+                }
+            }
+        }
+        return written + drain(out, channel);
+    }
+
+    /**
+     * Writes everything staged in the buffer to the channel and clears it.
+     */
+    private static int drain(ByteBuffer out, WritableByteChannel channel) throws IOException {
+        out.flip();
+        int written = out.remaining();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+        return written;
+    }
+
+    /**
+     * Checks that a subsequence is present and lies within the cells.
+     */
+    private void validateSubSequence(SubSequence subSeq) {
+        if (subSeq == null) {
+            throw new IllegalArgumentException("SubSequence cannot be null.");
+        }
+        if (subSeq.getStartIndex() < 0
+            || subSeq.getEndIndex() >= getOriginalSequenceLength()) {
+            throw new IndexOutOfBoundsException("SubSequence indices are out of bounds.");
+        }
+        if (subSeq.getStartIndex() > subSeq.getEndIndex()) {
+            throw new IllegalArgumentException("Start index cannot be greater than end index.");
+        }
+    }
+
+    /**
+     * Prints the details of all subsequences in the buffer, including IDs, indices,
+     * cells, processing status, and results.
+     */
+    public void printSubSequences() {
+        System.out.println("_Subsequences_");
+        refreshSubSequenceIDs();
+        for (SubSequence subSeq : subSequences.values()) {
+            String output = String.format(
+                "ID: %s, Indices: [%d:%d], Cells: '%s', Processed: %s, Result: '%s'",
+                subSeq.ID, subSeq.getStartIndex(), subSeq.getEndIndex(),
+                extractSubstringFromSubSequence(subSeq),
+                subSeq.isProcessed(), subSeq.getResult()
+            );
+            System.out.println(output);
+        }
+    }
+
+    /**
+     * Prints the cells of the buffer followed by the details of each subsequence.
+     */
+    public void printSequenceBuffer() {
+        System.out.println("__Packed BRF Buffer Details__");
+        System.out.println("Number of Cells: " + getOriginalSequenceLength());
+        System.out.println("Contents of Original Sequence:");
+        for (int i = 0; i < getOriginalSequenceLength(); i++) {
+            System.out.print("[" + i + ":" + getOriginalElement(i) + "] ");
+        }
+        System.out.println("\nNumber of SubSequences: " + subSequences.size());
+        printSubSequences();
+    }
+}
@@ -0,0 +1,135 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+import src.SequenceBuffer.SubSequence;
+
+/**
+ * Translates the unprocessed subsequences of a {@link SequenceBuffer} in parallel
+ * on a {@link ForkJoinPool}. The unprocessed subsequences are split recursively
+ * into ranges small enough to translate on one worker; each subsequence's original
+ * content is passed to the translator, and the results are added back to the buffer
+ * as one batch once every worker has finished. Each result covers a whole unprocessed
+ * subsequence, so the buffer ends up exactly as if the subsequences had been translated
+ * one at a time with {@link SequenceBuffer#addSubSequence(int, int, String)}.
+ */
+class ParallelTranslationDriver {
+
+    private static final int DEFAULT_THRESHOLD = 64; // Subsequences translated without forking
+
+    private final ForkJoinPool pool; // Pool the translation tasks run on
+    private final Function<String, String> translator; // Maps original content to its result
+    private final int threshold; // Largest range of subsequences a task translates itself
+
+    /**
+     * Constructs a driver that runs on the common pool.
+     *
+     * @param translator the function mapping original content to its result
+     */
+    ParallelTranslationDriver(Function<String, String> translator) {
+        this(ForkJoinPool.commonPool(), translator, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a driver that runs on the given pool.
+     *
+     * @param pool the pool the translation tasks run on
+     * @param translator the function mapping original content to its result
+     * @param threshold the largest number of subsequences a task translates without forking
+     */
+    ParallelTranslationDriver(ForkJoinPool pool, Function<String, String> translator, int threshold) {
+        if (pool == null || translator == null) {
+            throw new IllegalArgumentException("Pool and translator cannot be null.");
+        }
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive.");
+        }
+        this.pool = pool;
+        this.translator = translator;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Translates every unprocessed subsequence of the buffer. The buffer's original
+     * sequence is only read while the workers run, and it must not be changed by
+     * other threads until this method returns. Subsequences the translator maps to
+     * an empty result stay unprocessed.
+     *
+     * @param buffer the buffer to translate
+     * @return the number of subsequences that received a result
+     */
+    public int translate(SequenceBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("The buffer must not be null.");
+        }
+        List<SubSequence> pending = new ArrayList<>(buffer.getUnprocessedSubsequenceSize());
+        Iterator<SubSequence> unprocessed = buffer.unprocessedIterator();
+        while (unprocessed.hasNext()) {
+            pending.add(unprocessed.next());
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        String[] results = new String[pending.size()];
+        pool.invoke(new TranslationTask(buffer, pending, results, 0, pending.size()));
+
+        List<SubSequence> batch = new ArrayList<>(pending.size());
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                throw new IllegalArgumentException("Result string cannot be null");
+            }
+            if (!results[i].isEmpty()) {
+                SubSequence subSequence = pending.get(i);
+                batch.add(new SubSequence(
+                    subSequence.getStartIndex(), subSequence.getEndIndex(), results[i]
+                ));
+            }
+        }
+        buffer.addSubSequences(batch);
+        return batch.size();
+    }
+
+    /**
+     * Translates a range of the pending subsequences, splitting it in half
+     * until it is no larger than the threshold.
+     */
+    private class TranslationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L; // Tasks are never serialized, but RecursiveAction is Serializable
+
+        private final SequenceBuffer buffer;
+        private final List<SubSequence> pending;
+        private final String[] results;
+        private final int from; // First pending subsequence of the range
+        private final int to; // One past the last pending subsequence of the range
+
+        TranslationTask(SequenceBuffer buffer, List<SubSequence> pending, String[] results, int from, int to) {
+            this.buffer = buffer;
+            this.pending = pending;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int i = from; i < to; i++) {
+                    results[i] = translator.apply(buffer.extractSubstringFromSubSequence(pending.get(i)));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(
+                new TranslationTask(buffer, pending, results, from, mid),
+                new TranslationTask(buffer, pending, results, mid, to)
+            );
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package src;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An immutable character sequence of pieces joined by a delimiter, as the results of a
+ * buffer's subsequences are assembled. The pieces are held as they are rather than copied
+ * into one string, so a rope over a long output costs an array of references and an array
+ * of offsets, and a character is found by binary search over the offsets.
+ */
+class ResultRope implements CharSequence {
+
+    private final String[] pieces; // Pieces in order, none of them empty
+    private final String delimiter; // Placed between consecutive pieces
+    private final int[] offsets; // Index of the first character of each piece
+    private final int length; // Number of characters, delimiters included
+
+    /**
+     * Constructs a rope over the pieces, which are used in place.
+     *
+     * @param pieces the pieces in order, none of them empty
+     * @param delimiter the string placed between consecutive pieces
+     */
+    ResultRope(String[] pieces, String delimiter) {
+        this.pieces = pieces;
+        this.delimiter = delimiter;
+        this.offsets = new int[pieces.length];
+        int offset = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            if (i > 0) {
+                offset += delimiter.length();
+            }
+            this.offsets[i] = offset;
+            offset += pieces[i].length();
+        }
+        this.length = offset;
+    }
+
+    /**
+     * Gets the number of characters in the rope.
+     *
+     * @return the length of the rope
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Gets the character at an index, from the piece or delimiter that holds it.
+     *
+     * @param index the index of the character
+     * @return the character at the index
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException(
+                String.format("Index %d is out of bounds [0, %d]", index, this.length - 1)
+            );
+        }
+        int piece = Arrays.binarySearch(this.offsets, index);
+        if (piece < 0) {
+            piece = -piece - 2; // The last piece starting before the index
+        }
+        int offset = index - this.offsets[piece];
+        String text = this.pieces[piece];
+        return offset < text.length() ? text.charAt(offset) : this.delimiter.charAt(offset - text.length());
+    }
+
+    /**
+     * Copies a range of the rope into a string.
+     *
+     * @param start the index of the first character, inclusive
+     * @param end the index after the last character
+     * @return the characters of the range
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException(
+                String.format("Range [%d, %d) is out of bounds [0, %d]", start, end, this.length)
+            );
+        }
+        StringBuilder range = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            range.append(charAt(i));
+        }
+        return range.toString();
+    }
+
+    /**
+     * Appends the pieces and delimiters to the destination one at a time.
+     *
+     * @param destination the destination the rope is appended to
+     * @throws IOException if the destination cannot be written to
+     */
+    void writeTo(Appendable destination) throws IOException {
+        for (int i = 0; i < this.pieces.length; i++) {
+            if (i > 0) {
+                destination.append(this.delimiter);
+            }
+            destination.append(this.pieces[i]);
+        }
+    }
+
+    /**
+     * Copies the whole rope into a string.
+     *
+     * @return the characters of the rope
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(this.length);
+        for (int i = 0; i < this.pieces.length; i++) {
+            if (i > 0) {
+                text.append(this.delimiter);
+            }
+            text.append(this.pieces[i]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * An intern table for the results of subsequences. Each distinct result is stored once
+ * and given an id in the order it was first seen; interning a result equal to one already
+ * stored returns the existing id, so a buffer that holds millions of subsequences but only
+ * a few thousand distinct results keeps a few thousand strings, whatever the document length.
+ * Buffers that keep their subsequences in arrays store the id and resolve it through
+ * {@link #get(int)} when the result is read; buffers of {@link SequenceBuffer.SubSequence}
+ * objects store the shared string returned by {@link #canonical(String)}.
+ * Ids are found through an open-addressing hash table of int slots, so the table adds
+ * no object per entry beyond the string itself. Entries are never removed, so buffers
+ * that release their subsequences as they go, or discard results on edits, do not intern.
+ * A table is not safe for concurrent use, so it is never shared between buffers: a fork
+ * starts a table of its own rather than locking one on every add.
+ */
+class ResultTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] results = new String[INITIAL_CAPACITY]; // Distinct results, by id
+    private int size; // Number of distinct results
+    private int[] slots = new int[2 * INITIAL_CAPACITY]; // Id + 1 of the result in each slot, 0 if empty
+
+    /**
+     * Finds the id of a result, storing the result if it has not been seen before.
+     *
+     * @param result the result to intern
+     * @return the id of the result
+     */
+    int intern(String result) {
+        if (result == null) {
+            throw new IllegalArgumentException("Result string cannot be null");
+        }
+        int mask = this.slots.length - 1;
+        int slot = spread(result.hashCode()) & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot] - 1;
+            if (this.results[id].equals(result)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (this.size == this.results.length) {
+            this.results = Arrays.copyOf(this.results, this.size * 2);
+        }
+        this.results[this.size] = result;
+        this.slots[slot] = ++this.size;
+        if (2 * this.size > this.slots.length) {
+            rehash();
+        }
+        return this.size - 1;
+    }
+
+    /**
+     * Returns the stored string equal to a result, storing the result if it has not been seen before.
+     *
+     * @param result the result to intern
+     * @return the shared string equal to the result
+     */
+    String canonical(String result) {
+        int id = intern(result); // Interning may grow the array, so read it afterwards
+        return this.results[id];
+    }
+
+    /**
+     * Resolves the id of a result.
+     *
+     * @param id an id returned by {@link #intern(String)}
+     * @return the result with that id
+     */
+    String get(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IndexOutOfBoundsException(
+                String.format("Result id %d is out of bounds [0, %d]", id, this.size - 1)
+            );
+        }
+        return this.results[id];
+    }
+
+    /**
+     * Gets the number of distinct results stored.
+     *
+     * @return the number of results
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Doubles the hash table and places every id again.
+     */
+    private void rehash() {
+        int[] grown = new int[this.slots.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = spread(this.results[id].hashCode()) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        this.slots = grown;
+    }
+
+    /**
+     * Mixes the high bits of a hash code into the low bits used to pick a slot.
+     */
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B1;
+    }
+}
@@ -0,0 +1,349 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * A micro-benchmark harness for {@link CharBuffer}, {@link BrfBuffer}, {@link CompactCharBuffer}
+ * and {@link OffHeapCharBuffer}.
+ * Each workload is run against every buffer for sizes from 10 to 10^6 elements,
+ * with warm-up iterations before the measured ones. Only the operation under test
+ * is timed; the buffer it starts from is prepared outside the measurement.
+ * Alongside the time per element, the bytes allocated per element and the
+ * allocation rate are read from the thread's allocation counter, and the number
+ * of garbage collections is reported, so regressions in the split and sort paths
+ * show up as extra allocation as well as extra time.
+ *
+ * Usage: {@code java src.SequenceBufferBenchmark [maxExponent] [workloadFilter]}
+ */
+class SequenceBufferBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long MIN_ITERATION_NANOS = 100_000_000L; // Invocations repeat until this is reached
+    private static final int POLLS_PER_RUN = 100; // resultSequence calls per polling invocation
+    private static final String TEXT = "the quick brown fox jumps over the lazy dog ";
+
+    private static volatile int sink; // Consumes results so they are not optimised away
+
+    private final String name; // Workload and buffer, e.g. "sequential adds / CharBuffer"
+    private final IntFunction<Object> setup; // Builds the untimed starting state for a size
+    private final Function<Object, Object> operation; // The timed operation
+    private final int operationsPerElement; // Buffer operations for each element of the input
+
+    private SequenceBufferBenchmark(String name, IntFunction<Object> setup,
+                                    Function<Object, Object> operation, int operationsPerElement) {
+        this.name = name;
+        this.setup = setup;
+        this.operation = operation;
+        this.operationsPerElement = operationsPerElement;
+    }
+
+    /**
+     * Runs every workload whose name contains the filter, for sizes 10^1 up to 10^maxExponent.
+     *
+     * @param args optional maximum size exponent (default 6) and workload name filter
+     */
+    public static void main(String[] args) {
+        int maxExponent = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        String filter = args.length > 1 ? args[1] : "";
+
+        System.out.printf("%-34s %9s %12s %12s %12s %6s%n",
+            "Benchmark", "Size", "ns/element", "B/element", "MB/s alloc", "GCs");
+        int size = 1;
+        for (int exponent = 1; exponent <= maxExponent; exponent++) {
+            size *= 10;
+            for (SequenceBufferBenchmark benchmark : workloads()) {
+                if (benchmark.name.contains(filter)) {
+                    benchmark.run(size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the list of workloads, each against every kind of buffer.
+     *
+     * @return the benchmarks to run
+     */
+    private static List<SequenceBufferBenchmark> workloads() {
+        List<SequenceBufferBenchmark> benchmarks = new ArrayList<>();
+        for (String buffer : new String[] {"CharBuffer", "BrfBuffer", "CompactCharBuffer", "OffHeapCharBuffer"}) {
+            String kind = " / " + buffer;
+            benchmarks.add(new SequenceBufferBenchmark("construction" + kind,
+                size -> input(buffer, size),
+                input -> newBuffer(buffer, input),
+                1));
+            benchmarks.add(new SequenceBufferBenchmark("sequential adds" + kind,
+                size -> new Workload(newBuffer(buffer, input(buffer, size)), sequentialOrder(size)),
+                SequenceBufferBenchmark::addAll,
+                1));
+            benchmarks.add(new SequenceBufferBenchmark("random adds" + kind,
+                size -> new Workload(newBuffer(buffer, input(buffer, size)), randomOrder(size)),
+                SequenceBufferBenchmark::addAll,
+                1));
+            benchmarks.add(new SequenceBufferBenchmark("nested splits" + kind,
+                size -> new Workload(newBuffer(buffer, input(buffer, size)), bisectionOrder(size)),
+                SequenceBufferBenchmark::addAll,
+                1));
+            benchmarks.add(new SequenceBufferBenchmark("result polling" + kind,
+                size -> new Workload(newBuffer(buffer, input(buffer, size)), sequentialOrder(size)),
+                SequenceBufferBenchmark::addAllPolling,
+                1));
+        }
+        return benchmarks;
+    }
+
+    /**
+     * Runs the warm-up and measured iterations for one size and prints a line of results.
+     *
+     * @param size the number of elements in the input
+     */
+    private void run(int size) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(size);
+        }
+        long gcsBefore = collectionCount();
+        long nanos = 0;
+        long bytes = 0;
+        long elements = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long[] measured = iteration(size);
+            nanos += measured[0];
+            bytes += measured[1];
+            elements += measured[2];
+        }
+        long gcs = collectionCount() - gcsBefore;
+
+        long operations = elements * this.operationsPerElement;
+        System.out.printf("%-34s %9d %12.1f %12s %12s %6d%n",
+            this.name, size,
+            (double) nanos / operations,
+            bytes < 0 ? "n/a" : String.format("%.1f", (double) bytes / operations),
+            bytes < 0 ? "n/a" : String.format("%.1f", bytes / 1e6 / (nanos / 1e9)),
+            gcs);
+    }
+
+    /**
+     * Repeats the operation on freshly prepared state until the iteration has run for
+     * long enough to be measured reliably.
+     *
+     * @param size the number of elements in the input
+     * @return the nanoseconds spent in the operation, the bytes it allocated (negative
+     *         if allocation cannot be measured) and the number of elements processed
+     */
+    private long[] iteration(int size) {
+        long nanos = 0;
+        long bytes = 0;
+        long elements = 0;
+        do {
+            Object state = this.setup.apply(size);
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            Object result = this.operation.apply(state);
+            nanos += System.nanoTime() - start;
+            long allocatedAfter = allocatedBytes();
+            bytes = allocatedBefore < 0 ? -1 : bytes + allocatedAfter - allocatedBefore;
+            elements += size;
+            sink += System.identityHashCode(result);
+            release(state);
+            release(result);
+        } while (nanos < MIN_ITERATION_NANOS);
+        return new long[] {nanos, bytes, elements};
+    }
+
+    /**
+     * Closes a buffer that holds memory outside the heap, once it has been measured,
+     * so that its scratch files are deleted and its pages are left to the next collection.
+     */
+    private static void release(Object state) {
+        Object buffer = state instanceof Workload ? ((Workload) state).buffer : state;
+        if (buffer instanceof Closeable) {
+            try {
+                ((Closeable) buffer).close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Adds a single-element subsequence for every index, in the workload's order.
+     */
+    private static Object addAll(Object state) {
+        Workload workload = (Workload) state;
+        for (int index : workload.order) {
+            workload.buffer.addSubSequence(index, index, "x");
+        }
+        return workload.buffer;
+    }
+
+    /**
+     * Adds a single-element subsequence for every index, calling resultSequence
+     * at regular intervals as a caller polling for progress would.
+     */
+    private static Object addAllPolling(Object state) {
+        Workload workload = (Workload) state;
+        int interval = Math.max(1, workload.order.length / POLLS_PER_RUN);
+        int polled = 0;
+        for (int i = 0; i < workload.order.length; i++) {
+            int index = workload.order[i];
+            workload.buffer.addSubSequence(index, index, "x");
+            if (i % interval == 0) {
+                polled += workload.buffer.resultSequence().length();
+            }
+        }
+        return polled;
+    }
+
+    /**
+     * Creates a buffer of the named kind with one unprocessed subsequence covering the input,
+     * which is an array of cells for a BrfBuffer and of characters otherwise.
+     */
+    private static SequenceBuffer newBuffer(String buffer, Object input) {
+        switch (buffer) {
+            case "BrfBuffer":
+                return new BrfBuffer((String[]) input);
+            case "CompactCharBuffer":
+                return new CompactCharBuffer((char[]) input);
+            case "OffHeapCharBuffer":
+                return new OffHeapCharBuffer(java.nio.CharBuffer.wrap((char[]) input));
+            default:
+                return new CharBuffer((char[]) input);
+        }
+    }
+
+    /**
+     * Creates the input for a buffer of the named kind: cells for a BrfBuffer, characters otherwise.
+     */
+    private static Object input(String buffer, int size) {
+        return buffer.equals("BrfBuffer") ? cells(size) : chars(size);
+    }
+
+    /**
+     * Creates characters of English-like text.
+     */
+    private static char[] chars(int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; i++) {
+            chars[i] = TEXT.charAt(i % TEXT.length());
+        }
+        return chars;
+    }
+
+    /**
+     * Creates cells of one or two characters, as in a braille-ready file.
+     */
+    private static String[] cells(int size) {
+        String[] cells = new String[size];
+        for (int i = 0; i < size; i++) {
+            char c = TEXT.charAt(i % TEXT.length());
+            cells[i] = i % 5 == 0 ? "," + c : String.valueOf(c);
+        }
+        return cells;
+    }
+
+    /**
+     * Creates the indices 0 to size - 1 in order.
+     */
+    private static int[] sequentialOrder(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * Creates the indices 0 to size - 1 in a shuffled order, the same for every run.
+     */
+    private static int[] randomOrder(int size) {
+        int[] order = sequentialOrder(size);
+        Random random = new Random(42);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Creates the indices 0 to size - 1 in the order a breadth-first bisection visits them,
+     * so that most adds fall strictly inside an unprocessed subsequence and split it in three.
+     */
+    private static int[] bisectionOrder(int size) {
+        int[] order = new int[size];
+        int[] lows = new int[size];
+        int[] highs = new int[size];
+        int head = 0;
+        int tail = 0;
+        int count = 0;
+        lows[tail] = 0;
+        highs[tail++] = size - 1;
+        while (head < tail) {
+            int low = lows[head];
+            int high = highs[head++];
+            int mid = (low + high) >>> 1;
+            order[count++] = mid;
+            if (low < mid) {
+                lows[tail] = low;
+                highs[tail++] = mid - 1;
+            }
+            if (mid < high) {
+                lows[tail] = mid + 1;
+                highs[tail++] = high;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Reads the number of bytes allocated by the current thread.
+     *
+     * @return the allocated bytes, or -1 if the JVM cannot report them
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sums the number of collections run by every garbage collector.
+     */
+    private static long collectionCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * A buffer to be changed together with the order its indices are added in.
+     */
+    private static class Workload {
+        private final SequenceBuffer buffer;
+        private final int[] order;
+
+        Workload(SequenceBuffer buffer, int[] order) {
+            this.buffer = buffer;
+            this.order = order;
+        }
+    }
+}
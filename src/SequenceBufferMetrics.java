@@ -0,0 +1,313 @@
+package src;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import src.SequenceBuffer.SubSequence;
+
+/**
+ * Counters and Java Flight Recorder events for the split and merge activity of
+ * {@link AbstractSequenceBuffer}, shared by every buffer in the JVM.
+ * Counters record adds by case type, the subsequences created by splits, batch sorts
+ * and a latency histogram of single adds; they are off by default and are switched on
+ * with {@link #setEnabled(boolean)} or the system property {@code src.sequenceBuffer.metrics}.
+ * The events {@code src.SubSequenceAdd} and {@code src.SubSequenceBatch} are recorded
+ * whenever a flight recording enables them, independently of the counters.
+ * When both are off an add costs two field reads and no allocation.
+ */
+class SequenceBufferMetrics {
+
+    private static final int LATENCY_BUCKETS = 64; // Bucket b holds latencies in [2^(b-1), 2^b) ns
+    private static final EventType ADD_EVENT_TYPE = EventType.getEventType(SubSequenceAddEvent.class);
+    private static final EventType BATCH_EVENT_TYPE = EventType.getEventType(SubSequenceBatchEvent.class);
+
+    private static volatile boolean enabled = Boolean.getBoolean("src.sequenceBuffer.metrics");
+
+    private static final LongAdder exactMatches = new LongAdder();
+    private static final LongAdder startMatches = new LongAdder();
+    private static final LongAdder endMatches = new LongAdder();
+    private static final LongAdder encapsulations = new LongAdder();
+    private static final LongAdder spans = new LongAdder();
+    private static final LongAdder noMatches = new LongAdder();
+    private static final LongAdder splits = new LongAdder(); // Subsequences created by splitting
+    private static final LongAdder batchSorts = new LongAdder(); // Batches sorted before merging
+    private static final LongAdder batchedSubSequences = new LongAdder(); // Ranges passed in batches
+    private static final LongAdder[] addLatency = new LongAdder[LATENCY_BUCKETS];
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            addLatency[i] = new LongAdder();
+        }
+    }
+
+    private SequenceBufferMetrics() {
+    }
+
+    /**
+     * Checks if the counters are being updated.
+     *
+     * @return true if the counters are enabled
+     */
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches the counters on or off. Flight recorder events are controlled by the recording.
+     *
+     * @param on true to update the counters
+     */
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Starts observing a single add.
+     *
+     * @return the event tracking the add, or null if neither the counters nor the event are enabled
+     */
+    static SubSequenceAddEvent beginAdd() {
+        if (!enabled && !ADD_EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        SubSequenceAddEvent event = new SubSequenceAddEvent();
+        event.startNanos = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes observing a single add, updating the counters and committing the event.
+     *
+     * @param event the event returned by {@link #beginAdd()}, or null
+     * @param caseType the case the add was classified as
+     * @param subSequence the subsequence that was added
+     * @param created the change in the number of subsequences; adds that coalesce
+     *        subsequences reduce it and count as creating none
+     */
+    static void endAdd(SubSequenceAddEvent event, String caseType, SubSequence subSequence, int created) {
+        if (event == null) {
+            return;
+        }
+        created = Math.max(0, created);
+        event.end();
+        if (enabled) {
+            caseCounter(caseType).increment();
+            splits.add(created);
+            addLatency[bucketOf(System.nanoTime() - event.startNanos)].increment();
+        }
+        if (event.shouldCommit()) {
+            event.caseType = caseType;
+            event.startIndex = subSequence.getStartIndex();
+            event.endIndex = subSequence.getEndIndex();
+            event.created = created;
+            event.commit();
+        }
+    }
+
+    /**
+     * Starts observing a batch add, before its ranges are sorted, so that the
+     * event covers the sort and the merge.
+     *
+     * @param size the number of ranges in the batch
+     * @return the event tracking the batch, or null if neither the counters nor the event are enabled
+     */
+    static SubSequenceBatchEvent beginBatch(int size) {
+        if (!enabled && !BATCH_EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        if (enabled) {
+            batchSorts.increment();
+            batchedSubSequences.add(size);
+        }
+        SubSequenceBatchEvent event = new SubSequenceBatchEvent();
+        event.batchSize = size;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Finishes observing a batch add.
+     *
+     * @param event the event returned by {@link #beginBatch(int)}, or null
+     * @param created the change in the number of subsequences, counted as none if negative
+     */
+    static void endBatch(SubSequenceBatchEvent event, int created) {
+        if (event == null) {
+            return;
+        }
+        created = Math.max(0, created);
+        event.end();
+        if (enabled) {
+            splits.add(created);
+        }
+        if (event.shouldCommit()) {
+            event.created = created;
+            event.commit();
+        }
+    }
+
+    /**
+     * Gets the number of single adds classified as the given case.
+     *
+     * @param caseType "exactMatch", "startMatch", "endMatch", "fullEncapsulation",
+     *        "spansSubsequences" or "noMatch"
+     * @return the number of adds of that case
+     */
+    static long getAddCount(String caseType) {
+        return caseCounter(caseType).sum();
+    }
+
+    /**
+     * Gets the number of subsequences created by splitting existing ones.
+     *
+     * @return the split count
+     */
+    static long getSplitCount() {
+        return splits.sum();
+    }
+
+    /**
+     * Gets the number of batches sorted before being merged.
+     *
+     * @return the batch sort count
+     */
+    static long getBatchSortCount() {
+        return batchSorts.sum();
+    }
+
+    /**
+     * Gets the number of ranges passed to batch adds.
+     *
+     * @return the batched range count
+     */
+    static long getBatchedSubSequenceCount() {
+        return batchedSubSequences.sum();
+    }
+
+    /**
+     * Gets the latency histogram of single adds. Bucket 0 counts adds that took 0 ns,
+     * and bucket b counts adds that took at least 2^(b-1) and less than 2^b ns.
+     *
+     * @return a copy of the bucket counts
+     */
+    static long[] getAddLatencyHistogram() {
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            histogram[i] = addLatency[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    static void reset() {
+        exactMatches.reset();
+        startMatches.reset();
+        endMatches.reset();
+        encapsulations.reset();
+        spans.reset();
+        noMatches.reset();
+        splits.reset();
+        batchSorts.reset();
+        batchedSubSequences.reset();
+        for (LongAdder bucket : addLatency) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * Summarises the counters and the non-empty latency buckets.
+     *
+     * @return the counters as a string
+     */
+    static String summary() {
+        StringBuilder summary = new StringBuilder(String.format(
+            "adds[exact=%d, start=%d, end=%d, encapsulation=%d, spans=%d, noMatch=%d] splits=%d batchSorts=%d batched=%d%nlatency:",
+            exactMatches.sum(), startMatches.sum(), endMatches.sum(), encapsulations.sum(), spans.sum(), noMatches.sum(),
+            splits.sum(), batchSorts.sum(), batchedSubSequences.sum()));
+        long[] histogram = getAddLatencyHistogram();
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            if (histogram[i] > 0) {
+                summary.append(String.format(" <%dns=%d", 1L << i, histogram[i]));
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Finds the counter for a case type.
+     */
+    private static LongAdder caseCounter(String caseType) {
+        switch (caseType) {
+            case "exactMatch":
+                return exactMatches;
+            case "startMatch":
+                return startMatches;
+            case "endMatch":
+                return endMatches;
+            case "fullEncapsulation":
+                return encapsulations;
+            case "spansSubsequences":
+                return spans;
+            case "noMatch":
+                return noMatches;
+            default:
+                throw new IllegalArgumentException("Unknown case: " + caseType);
+        }
+    }
+
+    /**
+     * Finds the latency bucket for a duration: the number of bits needed to hold it.
+     */
+    private static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * Flight recorder event for a single subsequence add.
+     */
+    @Name("src.SubSequenceAdd")
+    @Label("SubSequence Add")
+    @Category("SequenceBuffer")
+    @Description("A subsequence added to a sequence buffer, with the case it matched")
+    static class SubSequenceAddEvent extends Event {
+
+        @Label("Case")
+        String caseType;
+
+        @Label("Start Index")
+        int startIndex;
+
+        @Label("End Index")
+        int endIndex;
+
+        @Label("Subsequences Created")
+        int created;
+
+        transient long startNanos; // Start of the add for the latency histogram, not recorded
+    }
+
+    /**
+     * Flight recorder event for a batch of subsequences merged in one pass.
+     */
+    @Name("src.SubSequenceBatch")
+    @Label("SubSequence Batch")
+    @Category("SequenceBuffer")
+    @Description("A batch of subsequences sorted and merged into a sequence buffer")
+    static class SubSequenceBatchEvent extends Event {
+
+        @Label("Batch Size")
+        int batchSize;
+
+        @Label("Subsequences Created")
+        int created;
+    }
+}
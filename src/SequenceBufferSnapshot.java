@@ -0,0 +1,282 @@
+package src;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import src.SequenceBuffer.SubSequence;
+
+/**
+ * A point-in-time copy of a {@link CharBuffer} or {@link BrfBuffer} that can be
+ * written to a compact binary file and restored from it, so a long translation
+ * can resume where it stopped.
+ * Capturing a snapshot copies only the subsequence table; the original sequence
+ * is shared, since buffers never change it. The snapshot can then be written on
+ * another thread while translation carries on. Restoring memory-maps the file:
+ * the characters of a CharBuffer are read straight from the mapping without being
+ * copied or parsed, and the subsequences are added back in a single batch.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * int    magic "SQBF"
+ * short  version
+ * byte   kind (0 = CharBuffer, 1 = BrfBuffer)
+ * byte   reserved
+ * int    element count (characters or cells)
+ * int    content length in chars
+ * int    subsequence count
+ * int[]  cell offsets, element count + 1 of them (BrfBuffer only)
+ * char[] content
+ * (int start, int end, int result length)[] subsequence table
+ * char[] results, back to back in table order
+ * </pre>
+ */
+class SequenceBufferSnapshot {
+
+    private static final int MAGIC = 0x53514246; // "SQBF"
+    private static final short VERSION = 1;
+    private static final byte CHAR_BUFFER = 0;
+    private static final byte BRF_BUFFER = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int SUBSEQUENCE_BYTES = 12;
+
+    private final byte kind; // Type of buffer the snapshot was taken from
+    private final CharSequence content; // Original characters, or packed cells
+    private final int[] cellOffsets; // Cell offsets for a BrfBuffer, otherwise null
+    private final int[] startIndices; // Start index of each subsequence, in order
+    private final int[] endIndices; // End index of each subsequence, in order
+    private final String[] results; // Result of each subsequence, empty if unprocessed
+
+    private SequenceBufferSnapshot(byte kind, CharSequence content, int[] cellOffsets,
+                                   int[] startIndices, int[] endIndices, String[] results) {
+        this.kind = kind;
+        this.content = content;
+        this.cellOffsets = cellOffsets;
+        this.startIndices = startIndices;
+        this.endIndices = endIndices;
+        this.results = results;
+    }
+
+    /**
+     * Captures the current state of a buffer. Only the subsequence table is copied,
+     * so the buffer must not be changed by another thread during the call.
+     *
+     * @param buffer the CharBuffer or BrfBuffer to capture
+     * @return the snapshot
+     */
+    static SequenceBufferSnapshot capture(SequenceBuffer buffer) {
+        byte kind;
+        CharSequence content;
+        int[] cellOffsets = null;
+        if (buffer instanceof CharBuffer) {
+            kind = CHAR_BUFFER;
+            content = ((CharBuffer) buffer).getCharacters();
+        } else if (buffer instanceof BrfBuffer) {
+            kind = BRF_BUFFER;
+            content = java.nio.CharBuffer.wrap(((BrfBuffer) buffer).getPackedCells());
+            cellOffsets = ((BrfBuffer) buffer).getCellOffsets();
+        } else {
+            throw new IllegalArgumentException(
+                "Snapshots are only supported for CharBuffer and BrfBuffer, not "
+                + (buffer == null ? "null" : buffer.getClass().getSimpleName())
+            );
+        }
+
+        AbstractSequenceBuffer<?> source = (AbstractSequenceBuffer<?>) buffer;
+        int count = source.subSequences.size();
+        int[] startIndices = new int[count];
+        int[] endIndices = new int[count];
+        String[] results = new String[count];
+        int i = 0;
+        for (SubSequence subSequence : source.subSequences.values()) {
+            startIndices[i] = subSequence.getStartIndex();
+            endIndices[i] = subSequence.getEndIndex();
+            results[i] = subSequence.getResult();
+            i++;
+        }
+        return new SequenceBufferSnapshot(kind, content, cellOffsets, startIndices, endIndices, results);
+    }
+
+    /**
+     * Gets the number of subsequences in the snapshot.
+     *
+     * @return the subsequence count
+     */
+    public int getSubsequenceSize() {
+        return this.startIndices.length;
+    }
+
+    /**
+     * Writes the snapshot to a file, replacing any existing content.
+     * The file is sized up front and written through a memory mapping.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written or the snapshot exceeds 2 GB
+     */
+    public void writeTo(Path path) throws IOException {
+        int elementCount = this.kind == BRF_BUFFER ? this.cellOffsets.length - 1 : this.content.length();
+        long resultChars = 0;
+        for (String result : this.results) {
+            resultChars += result.length();
+        }
+        long size = HEADER_BYTES
+            + (this.kind == BRF_BUFFER ? 4L * this.cellOffsets.length : 0)
+            + 2L * this.content.length()
+            + (long) SUBSEQUENCE_BYTES * this.startIndices.length
+            + 2L * resultChars;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + size + " bytes exceeds the 2 GB limit.");
+        }
+
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.put(this.kind);
+            out.put((byte) 0);
+            out.putInt(elementCount);
+            out.putInt(this.content.length());
+            out.putInt(this.startIndices.length);
+            if (this.kind == BRF_BUFFER) {
+                out.asIntBuffer().put(this.cellOffsets);
+                out.position(out.position() + 4 * this.cellOffsets.length);
+            }
+
+            java.nio.CharBuffer chars = out.asCharBuffer();
+            if (this.content instanceof java.nio.CharBuffer) {
+                chars.put(((java.nio.CharBuffer) this.content).duplicate());
+            } else if (this.content instanceof String) {
+                chars.put((String) this.content);
+            } else {
+                for (int i = 0; i < this.content.length(); i++) {
+                    chars.put(this.content.charAt(i));
+                }
+            }
+            out.position(out.position() + 2 * this.content.length());
+
+            for (int i = 0; i < this.startIndices.length; i++) {
+                out.putInt(this.startIndices[i]);
+                out.putInt(this.endIndices[i]);
+                out.putInt(this.results[i].length());
+            }
+            chars = out.asCharBuffer();
+            for (String result : this.results) {
+                chars.put(result);
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * Restores a buffer from a snapshot file. The file is memory-mapped; a CharBuffer
+     * reads its characters from the mapping in place, so the file must not be changed
+     * while the restored buffer is in use. The counts in the header are checked against
+     * the size of the file before anything is read, so a truncated or corrupt file is
+     * reported as such rather than failing partway through.
+     *
+     * @param path the snapshot file
+     * @return the restored CharBuffer or BrfBuffer
+     * @throws IOException if the file cannot be read, is not a snapshot or is corrupt
+     */
+    static SequenceBuffer restore(Path path) throws IOException {
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+            throw new IOException("Not a sequence buffer snapshot: " + path);
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + path);
+        }
+        byte kind = in.get();
+        in.get();
+        int elementCount = in.getInt();
+        int contentLength = in.getInt();
+        int count = in.getInt();
+        if (kind != CHAR_BUFFER && kind != BRF_BUFFER) {
+            throw new IOException("Unknown buffer kind " + kind + " in snapshot: " + path);
+        }
+        long tablesSize = (kind == BRF_BUFFER ? 4L * (elementCount + 1L) : 0)
+            + 2L * contentLength
+            + (long) SUBSEQUENCE_BYTES * count;
+        if (elementCount < 0 || contentLength < 0 || count < 0
+                || (kind == CHAR_BUFFER && elementCount != contentLength)
+                || tablesSize > in.remaining()) {
+            throw new IOException("Corrupt snapshot header: " + path);
+        }
+
+        try {
+            return decode(in, kind, elementCount, contentLength, count);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt snapshot: " + path, e);
+        }
+    }
+
+    /**
+     * Builds a buffer from the body of a snapshot whose header has been read and checked.
+     * A body that does not match its header shows up as a runtime exception, which the
+     * caller reports as a corrupt file.
+     */
+    private static SequenceBuffer decode(ByteBuffer in, byte kind, int elementCount,
+                                         int contentLength, int count) {
+        int[] cellOffsets = null;
+        if (kind == BRF_BUFFER) {
+            cellOffsets = new int[elementCount + 1];
+            in.asIntBuffer().get(cellOffsets);
+            in.position(in.position() + 4 * cellOffsets.length);
+            for (int i = 0; i < elementCount; i++) {
+                if (cellOffsets[0] != 0 || cellOffsets[i] > cellOffsets[i + 1]) {
+                    throw new IllegalArgumentException("Cell offsets must start from 0 and never decrease.");
+                }
+            }
+        }
+        java.nio.CharBuffer content = slice(in, 2 * contentLength).asCharBuffer();
+
+        ByteBuffer table = slice(in, SUBSEQUENCE_BYTES * count);
+        java.nio.CharBuffer resultChars = in.asCharBuffer();
+        List<SubSequence> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int startIndex = table.getInt();
+            int endIndex = table.getInt();
+            int resultLength = table.getInt();
+            if (resultLength < 0 || resultLength > resultChars.remaining()) {
+                throw new IllegalArgumentException("Result " + i + " runs past the end of the snapshot.");
+            }
+            char[] result = new char[resultLength];
+            resultChars.get(result);
+            batch.add(new SubSequence(startIndex, endIndex, new String(result)));
+        }
+
+        SequenceBuffer buffer;
+        if (kind == BRF_BUFFER) {
+            char[] cells = new char[contentLength];
+            content.get(cells);
+            buffer = new BrfBuffer(cells, cellOffsets);
+        } else {
+            buffer = new CharBuffer(content);
+        }
+        buffer.addSubSequences(batch);
+        return buffer;
+    }
+
+    /**
+     * Returns the next {@code length} bytes of the buffer as a buffer of their own,
+     * and moves past them.
+     */
+    private static ByteBuffer slice(ByteBuffer in, int length) {
+        ByteBuffer region = in.duplicate();
+        region.limit(region.position() + length);
+        in.position(in.position() + length);
+        return region.slice();
+    }
+}
@@ -0,0 +1,289 @@
+package src;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A character {@link SequenceBuffer} that reads its original sequence from a
+ * {@link Reader} into a bounded window, rather than holding the whole document.
+ * Indices are positions in the whole input. Once the subsequences at the front
+ * of the window are processed, {@link #advance()} writes their results to a
+ * {@link Writer}, releases their characters and refills the window from the reader,
+ * so memory use is bounded by the window capacity and not by the document size.
+ */
+class StreamingCharBuffer extends AbstractSequenceBuffer<Character> {
+
+    private final Reader source; // Input the window is filled from
+    private final Writer sink; // Output the released results are written to
+    private final char[] window; // Characters not yet released, starting at windowStart
+    private int windowStart; // Input index of window[0]
+    private int windowLength; // Number of characters currently held in the window
+    private boolean endOfInput; // Set once the reader has been exhausted
+    private boolean resultWritten; // Set once the first result has been written to the sink
+
+    /**
+     * Constructs a StreamingCharBuffer and fills its window from the reader,
+     * setting up an initial subsequence that spans the characters read.
+     *
+     * @param source the reader the original sequence is read from
+     * @param sink the writer the results are written to as they are released
+     * @param windowCapacity the maximum number of characters held at once
+     * @throws IOException if the reader cannot be read
+     */
+    StreamingCharBuffer(Reader source, Writer sink, int windowCapacity) throws IOException {
+        if (source == null || sink == null) {
+            throw new IllegalArgumentException("Source and sink cannot be null.");
+        }
+        if (windowCapacity <= 0) {
+            throw new IllegalArgumentException("Window capacity must be positive.");
+        }
+        this.source = source;
+        this.sink = sink;
+        this.window = new char[windowCapacity];
+        this.subSequences = new TreeMap<>();
+        fillWindow();
+    }
+
+    /**
+     * Writes the results of the processed subsequences at the front of the window
+     * to the sink, releases their characters and refills the window from the reader.
+     * Subsequence views taken before this call must not be used afterwards.
+     *
+     * @return true if input or unprocessed subsequences remain,
+     *         false once the whole input has been written
+     * @throws IOException if the reader or writer fails
+     */
+    public boolean advance() throws IOException {
+        int released = 0;
+        Map.Entry<Integer, SubSequence> first = this.subSequences.firstEntry();
+        while (first != null && first.getValue().isProcessed()) {
+            SubSequence subSequence = first.getValue();
+            if (this.resultWritten) {
+                this.sink.write(getResultDelimiter());
+            }
+            this.sink.write(subSequence.getResult());
+            this.resultWritten = true;
+            released = subSequence.getEndIndex() + 1 - this.windowStart;
+            unindexSubSequence(subSequence);
+            first = this.subSequences.firstEntry();
+        }
+
+        if (released > 0) {
+            System.arraycopy(this.window, released, this.window, 0, this.windowLength - released);
+            this.windowStart += released;
+            this.windowLength -= released;
+        }
+        fillWindow();
+
+        if (this.endOfInput && this.subSequences.isEmpty()) {
+            this.sink.flush();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads from the source until the window is full or the input ends, and
+     * covers the characters read with an unprocessed subsequence. If the last
+     * subsequence is still unprocessed it is extended instead.
+     */
+    private void fillWindow() throws IOException {
+        int firstRead = this.windowStart + this.windowLength;
+        while (!this.endOfInput && this.windowLength < this.window.length) {
+            int read = this.source.read(
+                this.window, this.windowLength, this.window.length - this.windowLength
+            );
+            if (read < 0) {
+                this.endOfInput = true;
+            } else {
+                this.windowLength += read;
+            }
+        }
+
+        int lastRead = this.windowStart + this.windowLength - 1;
+        if (lastRead < firstRead) {
+            return;
+        }
+        Map.Entry<Integer, SubSequence> last = this.subSequences.lastEntry();
+        if (last != null && !last.getValue().isProcessed()) {
+            SubSequence trailing = last.getValue();
+            unindexSubSequence(trailing);
+            trailing.setEndIndex(lastRead);
+            indexSubSequence(trailing);
+        } else {
+            indexSubSequence(new SubSequence(firstRead, lastRead, ""));
+        }
+    }
+
+    /**
+     * Retrieves the number of characters read so far, which is one past the
+     * last index that can be referenced.
+     *
+     * @return the length of the input read so far
+     */
+    @Override
+    protected int getOriginalSequenceLength() {
+        return this.windowStart + this.windowLength;
+    }
+
+    /**
+     * Converts a single character of the window into a string.
+     *
+     * @param index the input index of the character
+     * @return the character as a string
+     */
+    @Override
+    protected String getOriginalElement(int index) {
+        if (index < this.windowStart || index >= this.windowStart + this.windowLength) {
+            throw new IndexOutOfBoundsException(
+                String.format("Index %d is outside the window [%d, %d]",
+                index, this.windowStart, this.windowStart + this.windowLength - 1)
+            );
+        }
+        return String.valueOf(this.window[index - this.windowStart]);
+    }
+
+    /**
+     * Returns the original sequence held in the window as an array of strings.
+     * Characters that have already been released are not included.
+     *
+     * @return an array of strings representing the window
+     */
+    @Override
+    public String[] getOriginalSequence() {
+        String[] stringArray = new String[this.windowLength];
+        for (int i = 0; i < this.windowLength; i++) {
+            stringArray[i] = String.valueOf(this.window[i]);
+        }
+        return stringArray;
+    }
+
+    /**
+     * Searches the window in place, through a view indexed by position in the whole input.
+     * Only the indices held in the window can be read.
+     *
+     * @return the input read so far, as seen through the window
+     */
+    @Override
+    protected CharSequence getSearchableCharacters() {
+        return new CharSequence() {
+            @Override
+            public int length() {
+                return getOriginalSequenceLength();
+            }
+
+            @Override
+            public char charAt(int index) {
+                if (index < windowStart) {
+                    throw new IndexOutOfBoundsException("Index " + index + " has been released from the window");
+                }
+                return window[index - windowStart];
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return new CharSequenceView(this, start, end - start);
+            }
+
+            @Override
+            public String toString() {
+                return new String(window, 0, windowLength);
+            }
+        };
+    }
+
+    /**
+     * Character results are concatenated with a hyphen "-" as a delimiter,
+     * both in {@link #resultToString()} and in the results written to the sink.
+     *
+     * @return the result delimiter
+     */
+    @Override
+    protected String getResultDelimiter() {
+        return "-";
+    }
+
+    /**
+     * Results are not interned, since an intern table would keep every distinct result
+     * of the stream after its subsequence has been written out and released.
+     *
+     * @return false
+     */
+    @Override
+    protected boolean internsResults() {
+        return false;
+    }
+
+    /**
+     * Extracts the substring of the window that corresponds to the indices of a given subsequence.
+     *
+     * @param subSeq the subsequence from which to extract the substring
+     * @return the substring corresponding to the subsequence's indices
+     */
+    public String extractSubstringFromSubSequence(SubSequence subSeq) {
+        return viewSubSequence(subSeq).toString();
+    }
+
+    /**
+     * Returns a view of the window characters that correspond to the indices of
+     * a given subsequence. The view is only valid until the next {@link #advance()}.
+     *
+     * @param subSeq the subsequence to view
+     * @return a character sequence over the subsequence's indices
+     */
+    public CharSequence viewSubSequence(SubSequence subSeq) {
+        if (subSeq == null) {
+            throw new IllegalArgumentException("SubSequence cannot be null.");
+        }
+
+        if (subSeq.getStartIndex() < this.windowStart
+            || subSeq.getEndIndex() >= this.windowStart + this.windowLength) {
+            throw new IndexOutOfBoundsException("SubSequence indices are outside the window.");
+        }
+
+        if (subSeq.getStartIndex() > subSeq.getEndIndex()) {
+            throw new IllegalArgumentException("Start index cannot be greater than end index.");
+        }
+
+        return new CharSequenceView(
+            java.nio.CharBuffer.wrap(this.window, 0, this.windowLength),
+            subSeq.getStartIndex() - this.windowStart,
+            subSeq.getLength() + 1
+        );
+    }
+
+    /**
+     * Prints the details of the subsequences still in the window,
+     * including IDs, indices, substrings, and processing status.
+     */
+    public void printSubSequences() {
+        System.out.println("_Subsequences_");
+        refreshSubSequenceIDs();
+        for (SubSequence subSeq : subSequences.values()) {
+            String output = String.format("ID: %s,Indx: [%d:%d],Str: '%s',Proc: %s,Result: '%s'",
+                                          subSeq.ID, subSeq.getStartIndex(), subSeq.getEndIndex(),
+                                          viewSubSequence(subSeq),
+                                          subSeq.isProcessed(), subSeq.getResult());
+            System.out.println(output);
+        }
+    }
+
+    /**
+     * Prints details about the window, including its position in the input
+     * and detailed information about each subsequence.
+     */
+    public void printSequenceBuffer() {
+        System.out.println("__Streaming Sequence Buffer Details__");
+        System.out.println("Window: [" + this.windowStart + ":"
+            + (this.windowStart + this.windowLength - 1) + "] of capacity " + this.window.length);
+        System.out.println("Contents of Window:");
+        for (int i = 0; i < this.windowLength; i++) {
+            System.out.print("[" + (this.windowStart + i) + ":" + this.window[i] + "] ");
+        }
+        System.out.println("\nNumber of SubSequences: " + subSequences.size());
+        printSubSequences();
+    }
+}
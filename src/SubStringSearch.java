@@ -7,14 +7,19 @@ public interface SubStringSearch {
 
     int search(String pattern, String txt );
 
-}
-class BruteForceSubStringSearch implements SubStringSearch {
-
-    @Override
-    public int search(String pattern, String txt) {
+    /**
+     * Searches a range of a character sequence in place, without copying it.
+     * A match must lie entirely within the range.
+     *
+     * @param pattern the pattern to find
+     * @param txt the sequence to search
+     * @param from the first index of the range
+     * @param to one past the last index of the range
+     * @return the index of the first match in txt, or {@code to} if there is none
+     */
+    default int search(String pattern, CharSequence txt, int from, int to) {
         int M = pattern.length();
-        int N = txt.length();
-        for (int i = 0; i <= N - M; i++) {
+        for (int i = from; i <= to - M; i++) {
             int j;
             for (j = 0; j < M; j++) {
                 if (txt.charAt(i + j) != pattern.charAt(j)) {
@@ -25,51 +30,47 @@ class BruteForceSubStringSearch implements SubStringSearch {
                 return i;
             }
         }
-        return N;
+        return to;
     }
-}
-class KMPSubStringSearch implements SubStringSearch {
-
-    class KMP {
 
-        private String pattern;
-        private int[][] dfa;
+    /**
+     * Chooses the fastest engine for a pattern, estimating the alphabet of the text
+     * from the distinct characters of the pattern. The engine keeps its tables for the
+     * pattern, so it should be reused while the same pattern is searched for. Tables are
+     * never changed once built, so one engine can be shared between threads, even if they
+     * search for different patterns.
+     *
+     * @param pattern the pattern that will be searched for
+     * @return a new engine suited to the pattern
+     */
+    static SubStringSearch forPattern(String pattern) {
+        return select(pattern.length(), (int) pattern.chars().distinct().count());
+    }
 
-        public int search(String txt) {
-            int i, j, N = txt.length(), M = pattern.length();
-            for (i = 0, j = 0; i < N && j < M; i++) {
-                j = dfa[txt.charAt(i)][j];
-            }
-            if (j == M) {
-                return i - M;
-            }
-            return N;
+    /**
+     * Chooses the fastest engine for a pattern length and alphabet size. Patterns under
+     * four characters cannot skip far enough to repay building skip tables, so they are
+     * compared directly. Over a large alphabet, such as natural text, a mismatched
+     * character seldom occurs in the pattern and Horspool's single table skips nearly
+     * the whole pattern. Over a small alphabet every character occurs in the pattern
+     * and bad-character shifts stay short, so longer patterns use Boyer-Moore, whose
+     * good-suffix rule still shifts past repeated parts of the pattern.
+     *
+     * @param patternLength the length of the pattern
+     * @param alphabetSize the number of distinct characters expected
+     * @return a new engine suited to the pattern
+     */
+    static SubStringSearch select(int patternLength, int alphabetSize) {
+        if (patternLength < 0 || alphabetSize < 0) {
+            throw new IllegalArgumentException("Pattern length and alphabet size cannot be negative.");
         }
-    
-        public KMP(String pattern) {
-            this.pattern = pattern;
-            int M = pattern.length();
-            int R = 256;
-            dfa = new int[R][M];
-            dfa[pattern.charAt(0)][0] = 1;
-            for (int X = 0, j = 1; j < M; j++) {
-                for (int c = 0; c < R; c++) {
-                    dfa[c][j] = dfa[c][X];
-                }
-                dfa[pattern.charAt(j)][j] = j + 1;
-                X = dfa[pattern.charAt(j)][X];
-            }
-    
+        if (patternLength < 4) {
+            return new BruteForceSubStringSearch();
         }
-
+        if (alphabetSize <= 4) {
+            return patternLength < 8 ? new BruteForceSubStringSearch() : new BoyerMooreSubStringSearch();
+        }
+        return new HorspoolSubStringSearch();
     }
 
-    @Override
-    public int search(String pattern, String txt) {
-        KMP kmp = new KMP(pattern);
-        int offset = kmp.search(txt);
-        return offset;
-    }
 }
-
-
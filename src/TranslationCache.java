@@ -0,0 +1,137 @@
+package src;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded memo cache placed between a translation driver and its translator.
+ * Results are keyed by the content of a subsequence rather than its position,
+ * so repeated words and phrases are translated once. When the cache is full the
+ * least recently used entry is evicted. Hit, miss and eviction counts are kept
+ * for tuning the capacity.
+ * The cache is safe to share between worker threads; the translator is called
+ * outside the lock, so two threads missing on the same content at once may both
+ * translate it.
+ */
+class TranslationCache implements Function<String, String> {
+
+    private final Function<String, String> translator; // Called on a cache miss
+    private final int capacity; // Largest number of entries held
+    private final LinkedHashMap<String, String> entries; // In least recently used order
+    private long hits; // Lookups answered from the cache
+    private long misses; // Lookups passed on to the translator
+    private long evictions; // Entries dropped to stay within the capacity
+
+    /**
+     * Constructs a cache in front of a translator.
+     *
+     * @param translator the function called for content not in the cache
+     * @param capacity the largest number of entries the cache holds
+     */
+    TranslationCache(Function<String, String> translator, int capacity) {
+        if (translator == null) {
+            throw new IllegalArgumentException("Translator cannot be null.");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.translator = translator;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > TranslationCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the translation of the content, calling the translator only if the
+     * content is not already cached. Null results are passed through uncached.
+     *
+     * @param content the original content of a subsequence
+     * @return the translated result
+     */
+    @Override
+    public String apply(String content) {
+        synchronized (this) {
+            String cached = entries.get(content);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        String result = translator.apply(content);
+        if (result != null) {
+            synchronized (this) {
+                entries.put(content, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups passed on to the translator.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within the capacity.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of entries currently cached.
+     *
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the fraction of lookups answered from the cache.
+     *
+     * @return the hit rate, or 0 if nothing has been looked up
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    /**
+     * Drops every cached entry. The statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TranslationCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f]",
+            entries.size(), capacity, hits, misses, evictions, getHitRate());
+    }
+}
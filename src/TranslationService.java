@@ -0,0 +1,350 @@
+package src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A small HTTP service for translating documents sent by other processes on the same host.
+ * Each request gets a buffer of its own: {@code POST /translate} takes UTF-8 text into a
+ * {@link CharBuffer}, and {@code POST /translate/brf} takes braille-ready text into a
+ * {@link BrfBuffer} of one cell per character. The translator adds the results to the
+ * buffer, and the response is its {@link SequenceBuffer#resultToString()}.
+ * Connections are multiplexed by the server's dispatcher thread, so an idle or
+ * keep-alive connection costs no thread; requests pipelined on one connection are
+ * answered in order. Translation runs on virtual threads when the JVM has them, and
+ * otherwise on a pool with one thread per processor.
+ * At most {@code maxInFlight} requests are admitted at once; the dispatcher answers any
+ * request beyond that with 503 and a Retry-After header straight away, so that a burst
+ * is pushed back to the clients rather than queued without bound.
+ * A document may be at most {@code maxBodyBytes} long. A request that declares a longer
+ * body is answered with 413 by the dispatcher without being admitted, and one that sends
+ * a longer body without declaring its length is cut off at the limit and answered with 413,
+ * so no request buffers more than the limit.
+ * Every response reports the time the request spent queued and translating in the
+ * X-Queue-Micros and X-Translation-Micros headers, and {@code GET /stats} returns the
+ * request counts and latency percentiles for everything served so far.
+ */
+class TranslationService implements Closeable {
+
+    private static final int LATENCY_BUCKETS = 64; // Bucket b holds latencies in [2^(b-1), 2^b) ns
+    static final int DEFAULT_MAX_BODY_BYTES = 16 << 20; // Largest document accepted unless configured
+
+    private final HttpServer server; // Accepts connections and dispatches exchanges
+    private final ExecutorService workers; // Runs the translations
+    private final int maxInFlight; // Largest number of requests admitted at once
+    private final int maxBodyBytes; // Largest document accepted, in bytes
+    private final Semaphore admissions; // One permit per request that may be in flight
+    private final BiConsumer<SequenceBuffer, CharSequence> translator; // Translates a buffer over its text
+    private final LongAdder served = new LongAdder(); // Requests answered with a translation
+    private final LongAdder rejected = new LongAdder(); // Requests turned away for backpressure
+    private final LongAdder failed = new LongAdder(); // Requests that could not be translated
+    private final LongAdder[] latency = new LongAdder[LATENCY_BUCKETS]; // From admission to response
+
+    /**
+     * Constructs a service bound to a port of the loopback address that accepts documents
+     * of up to {@link #DEFAULT_MAX_BODY_BYTES}. It does not accept requests until
+     * {@link #start()} is called.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param translator the function that translates a buffer, given its original text
+     * @param maxInFlight the largest number of requests admitted at once
+     * @throws IOException if the port cannot be bound
+     */
+    TranslationService(int port, BiConsumer<SequenceBuffer, CharSequence> translator, int maxInFlight)
+            throws IOException {
+        this(port, translator, maxInFlight, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    /**
+     * Constructs a service bound to a port of the loopback address. It does not
+     * accept requests until {@link #start()} is called.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param translator the function that translates a buffer, given its original text
+     * @param maxInFlight the largest number of requests admitted at once
+     * @param maxBodyBytes the largest document accepted, in bytes
+     * @throws IOException if the port cannot be bound
+     */
+    TranslationService(int port, BiConsumer<SequenceBuffer, CharSequence> translator, int maxInFlight,
+                       int maxBodyBytes) throws IOException {
+        if (translator == null) {
+            throw new IllegalArgumentException("Translator cannot be null.");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("The number of requests in flight must be positive.");
+        }
+        if (maxBodyBytes <= 0 || maxBodyBytes == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The largest document must be positive and under 2 GB.");
+        }
+        this.translator = translator;
+        this.maxInFlight = maxInFlight;
+        this.maxBodyBytes = maxBodyBytes;
+        this.admissions = new Semaphore(maxInFlight);
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            this.latency[i] = new LongAdder();
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // Handlers run on the dispatcher thread, which only admits a request and hands it on
+        this.server.setExecutor(null);
+        this.server.createContext("/translate", exchange -> admit(exchange, false));
+        this.server.createContext("/translate/brf", exchange -> admit(exchange, true));
+        this.server.createContext("/stats", this::respondWithStats);
+        this.workers = newWorkerExecutor();
+    }
+
+    /**
+     * Creates the executor translations run on: one virtual thread per task if the JVM
+     * supports them, found by reflection so that the service still runs on JVMs without
+     * them, and otherwise a fixed pool with one thread per processor.
+     *
+     * @return the executor
+     */
+    static ExecutorService newWorkerExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Gets the port the service listens on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, abandons those in flight and stops the workers.
+     */
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.workers.shutdownNow();
+    }
+
+    /**
+     * Admits a translation request if a permit is free and hands it to a worker,
+     * or turns it away with 503. A request that declares a body over the limit is turned
+     * away with 413 before anything is read. Runs on the dispatcher thread, so it never blocks.
+     */
+    private void admit(HttpExchange exchange, boolean brf) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "Only POST is supported.\n");
+            return;
+        }
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (declared != null && !declared.matches("[0-9]{1,18}")) {
+            this.failed.increment();
+            respond(exchange, 400, "The Content-Length is not a number.\n");
+            return;
+        }
+        if (declared != null && Long.parseLong(declared) > this.maxBodyBytes) {
+            this.failed.increment();
+            respond(exchange, 413, tooLarge());
+            return;
+        }
+        if (!this.admissions.tryAcquire()) {
+            this.rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "Too many requests in flight.\n");
+            return;
+        }
+        long admitted = System.nanoTime();
+        try {
+            this.workers.execute(() -> translate(exchange, brf, admitted));
+        } catch (RejectedExecutionException e) {
+            this.admissions.release();
+            respond(exchange, 503, "The service is shutting down.\n");
+        }
+    }
+
+    /**
+     * Reads a document, translates it in a new buffer and sends the result. Runs on a worker.
+     */
+    private void translate(HttpExchange exchange, boolean brf, long admitted) {
+        long started = System.nanoTime();
+        try {
+            byte[] body = exchange.getRequestBody().readNBytes(this.maxBodyBytes + 1);
+            if (body.length > this.maxBodyBytes) {
+                this.failed.increment();
+                respond(exchange, 413, tooLarge());
+                return;
+            }
+            String text = new String(body, StandardCharsets.UTF_8);
+            if (text.isEmpty()) {
+                this.failed.increment();
+                respond(exchange, 400, "The document is empty.\n");
+                return;
+            }
+            SequenceBuffer buffer;
+            if (brf) {
+                String[] cells = new String[text.length()];
+                for (int i = 0; i < cells.length; i++) {
+                    cells[i] = String.valueOf(text.charAt(i));
+                }
+                buffer = new BrfBuffer(cells);
+            } else {
+                buffer = new CharBuffer(text);
+            }
+            this.translator.accept(buffer, text);
+            String result = buffer.resultToString();
+
+            long finished = System.nanoTime();
+            exchange.getResponseHeaders().set("X-Queue-Micros", Long.toString((started - admitted) / 1000));
+            exchange.getResponseHeaders().set("X-Translation-Micros", Long.toString((finished - started) / 1000));
+            respond(exchange, 200, result);
+            this.served.increment();
+            this.latency[bucketOf(finished - admitted)].increment();
+        } catch (IOException | RuntimeException e) {
+            this.failed.increment();
+            try {
+                respond(exchange, 500, "Translation failed: " + e.getMessage() + "\n");
+            } catch (IOException ignored) {
+                exchange.close(); // The client has gone
+            }
+        } finally {
+            this.admissions.release();
+        }
+    }
+
+    /**
+     * Builds the body of a 413 response.
+     */
+    private String tooLarge() {
+        return "The document exceeds " + this.maxBodyBytes + " bytes.\n";
+    }
+
+    /**
+     * Answers {@code GET /stats} with the request counts and latency percentiles,
+     * one {@code name=value} pair per line.
+     */
+    private void respondWithStats(HttpExchange exchange) throws IOException {
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            histogram[i] = this.latency[i].sum();
+        }
+        String stats = String.format(
+            "served=%d%nrejected=%d%nfailed=%d%ninFlight=%d%n"
+                + "latencyP50Micros=%d%nlatencyP99Micros=%d%nlatencyMaxMicros=%d%n",
+            this.served.sum(), this.rejected.sum(), this.failed.sum(),
+            inFlight(),
+            percentileMicros(histogram, 0.50), percentileMicros(histogram, 0.99), percentileMicros(histogram, 1.0));
+        respond(exchange, 200, stats);
+    }
+
+    /**
+     * Gets the number of requests admitted and not yet answered.
+     *
+     * @return the requests in flight
+     */
+    int inFlight() {
+        return this.maxInFlight - this.admissions.availablePermits();
+    }
+
+    /**
+     * Estimates a latency percentile from the histogram as the upper bound of the bucket
+     * it falls in, so it is accurate to within a factor of two.
+     *
+     * @return the percentile in microseconds, or 0 if no request has been served
+     */
+    private static long percentileMicros(long[] histogram, double percentile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return (1L << i) / 1000;
+            }
+        }
+        return Long.MAX_VALUE / 1000;
+    }
+
+    /**
+     * Finds the latency bucket for a duration: the number of bits needed to hold it.
+     */
+    private static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * Sends a complete plain-text response and closes the exchange.
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Serves translations using a dictionary of rules, segmenting each document by longest match.
+     * The rules file holds one rule per line: the text, a tab, and its result.
+     *
+     * Usage: {@code java src.TranslationService <rules> [port] [maxInFlight]}
+     *
+     * @param args the rules file, and optional port and limit on requests in flight
+     * @throws IOException if the rules cannot be read or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TranslationService <rules> [port] [maxInFlight]");
+            return;
+        }
+        Map<String, String> rules = new TreeMap<>();
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        for (String line : lines) {
+            int tab = line.indexOf('\t');
+            if (tab > 0 && tab < line.length() - 1) {
+                rules.put(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+
+        LongestMatchSegmenter segmenter = new LongestMatchSegmenter(rules);
+        TranslationService service = new TranslationService(port, segmenter::segment, maxInFlight);
+        Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+        service.start();
+        System.out.println("Translating on http://localhost:" + service.getPort() + "/translate");
+    }
+}